@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * An OutputStream that only keeps the last bytes or lines written to it.
+ * <p>
+ * Every {@code write} call and {@link #snapshot()} are atomic, i.e. a
+ * snapshot never contains only parts of a single {@code write} call.
+ */
+abstract class BoundedCaptureOutputStream extends OutputStream {
+
+    /**
+     * Returns the bytes currently kept by the stream.
+     */
+    abstract byte[] snapshot();
+
+    /**
+     * Returns a stream keeping the last {@code maxBytes} bytes.
+     */
+    static BoundedCaptureOutputStream newLastBytesCapture(int maxBytes) {
+        return new LastBytes(maxBytes);
+    }
+
+    /**
+     * Returns a stream keeping the last {@code maxLines} lines, of every line
+     * only the last {@code maxLineBytes} bytes.
+     * <p>
+     * A trailing line not (yet) terminated by a {@code '\n'} counts as
+     * a line.
+     */
+    static BoundedCaptureOutputStream newLastLinesCapture(int maxLines, int maxLineBytes) {
+        return new LastLines(maxLines, maxLineBytes);
+    }
+
+    private static void checkPositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(
+                    name + " must be >= 1, got " + value); //NON-NLS
+        }
+    }
+
+    private static final class LastBytes extends BoundedCaptureOutputStream {
+        private final byte[] ring;
+        /**
+         * The index in {@link #ring} the next byte is written to.
+         */
+        private int next;
+        private boolean full;
+
+        LastBytes(int maxBytes) {
+            checkPositive(maxBytes, "maxBytes"); //NON-NLS
+            this.ring = new byte[maxBytes];
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            ring[next++] = (byte) b;
+            if (next == ring.length) {
+                next = 0;
+                full = true;
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            if (length >= ring.length) {
+                // only the tail of the bytes fits into the ring
+                System.arraycopy(bytes, offset + length - ring.length,
+                        ring, 0, ring.length);
+                next = 0;
+                full = true;
+                return;
+            }
+            int firstPart = Math.min(length, ring.length - next);
+            System.arraycopy(bytes, offset, ring, next, firstPart);
+            System.arraycopy(bytes, offset + firstPart, ring, 0, length - firstPart);
+            next += length;
+            if (next >= ring.length) {
+                next -= ring.length;
+                full = true;
+            }
+        }
+
+        synchronized int size() {
+            return full ? ring.length : next;
+        }
+
+        synchronized void reset() {
+            next = 0;
+            full = false;
+        }
+
+        @Override
+        synchronized byte[] snapshot() {
+            if (!full) {
+                return Arrays.copyOf(ring, next);
+            }
+            byte[] result = new byte[ring.length];
+            System.arraycopy(ring, next, result, 0, ring.length - next);
+            System.arraycopy(ring, 0, result, ring.length - next, next);
+            return result;
+        }
+    }
+
+    private static final class LastLines extends BoundedCaptureOutputStream {
+        private final int maxLines;
+        private final ArrayDeque<byte[]> completedLines = new ArrayDeque<>();
+        /**
+         * The (last bytes of the) current line.
+         */
+        private final LastBytes currentLine;
+
+        LastLines(int maxLines, int maxLineBytes) {
+            checkPositive(maxLines, "maxLines"); //NON-NLS
+            this.maxLines = maxLines;
+            this.currentLine = new LastBytes(maxLineBytes);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            currentLine.write(b);
+            if (b == '\n') {
+                completeLine();
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            int end = offset + length;
+            int start = offset;
+            for (int i = offset; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    currentLine.write(bytes, start, i + 1 - start);
+                    completeLine();
+                    start = i + 1;
+                }
+            }
+            currentLine.write(bytes, start, end - start);
+        }
+
+        private void completeLine() {
+            completedLines.addLast(currentLine.snapshot());
+            currentLine.reset();
+            if (completedLines.size() > maxLines) {
+                completedLines.removeFirst();
+            }
+        }
+
+        @Override
+        synchronized byte[] snapshot() {
+            boolean hasPartialLine = currentLine.size() > 0;
+            int skip = hasPartialLine && completedLines.size() == maxLines ? 1 : 0;
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            for (byte[] line : completedLines) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    result.write(line, 0, line.length);
+                }
+            }
+            byte[] lastLine = currentLine.snapshot();
+            result.write(lastLine, 0, lastLine.length);
+            return result.toByteArray();
+        }
+    }
+}
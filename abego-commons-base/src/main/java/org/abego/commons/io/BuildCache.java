@@ -0,0 +1,510 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+
+/**
+ * A persistent build cache, deciding if target files must be (re)written
+ * by comparing the content digests of the files they depend on.
+ * <p>
+ * Every directory containing target files has a single index file
+ * {@value #INDEX_FILE_NAME}. It stores the dependencies digest for every
+ * set of target files written into the directory and caches the digests
+ * of the dependency files, together with their size and last modified time.
+ * A dependency file is only read (and hashed) again when its size or last
+ * modified time changed, i.e. checking if targets are outdated costs
+ * O(changed files). As the digests reflect the content of the files a mere
+ * "touch" of a dependency, e.g. by a checkout, does not make the targets
+ * outdated.
+ * <p>
+ * A file modified within {@value #MODIFICATION_TIME_GRANULARITY_MILLIS} ms
+ * before it was hashed may be modified again without changing its size and
+ * last modified time ("racy" file). Such files are hashed again on every
+ * check, until they are old enough.
+ * <p>
+ * The index file only keeps the digests of files used since the index was
+ * loaded, i.e. digests of files no longer used are pruned.
+ */
+final class BuildCache {
+    static final String INDEX_FILE_NAME = ".buildcache"; //NON-NLS
+    private static final String DIGEST_ALGORITHM = "SHA-256"; //NON-NLS
+    private static final String NO_FILE_DIGEST = "-"; //NON-NLS
+    private static final String FILE_ENTRY_TAG = "F"; //NON-NLS
+    private static final String TARGETS_ENTRY_TAG = "T"; //NON-NLS
+    private static final char SEPARATOR = '\t';
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2000;
+    /**
+     * The last modified time stored for a racy file, making sure the file
+     * is hashed again with the next check.
+     */
+    private static final long RACY_LAST_MODIFIED = -1;
+    /**
+     * When no more than this number of files changed they are hashed in
+     * the calling thread.
+     */
+    private static final int MAX_FILES_TO_HASH_INLINE = 2;
+    private static final int MAX_HASH_CONCURRENCY =
+            Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService HASH_EXECUTOR =
+            Executors.newFixedThreadPool(MAX_HASH_CONCURRENCY, r -> {
+                Thread thread = new Thread(r, "BuildCache-hash"); //NON-NLS
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * The BuildCaches used most recently. A BuildCache no longer in this
+     * map is created again from its index file when needed.
+     */
+    private static final int MAX_BUILD_CACHES = 32;
+    private static final Map<Path, BuildCache> BUILD_CACHES =
+            new LinkedHashMap<Path, BuildCache>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, BuildCache> eldest) {
+                    return size() > MAX_BUILD_CACHES;
+                }
+            };
+
+    private final Path indexFile;
+    private final Map<Path, FileDigest> fileDigests = new HashMap<>();
+    /**
+     * The files whose digests were used since this object was created, i.e.
+     * the files whose digests are written to the index file.
+     */
+    private final Set<Path> usedFiles = new HashSet<>();
+    /**
+     * Maps the (tab separated) absolute paths of a set of target files to
+     * the digest of their dependencies.
+     */
+    private final Map<String, String> targetsDigests = new HashMap<>();
+    /**
+     * The last modified time of the index file when it was last read or
+     * written by this object, or {@code -1} when not yet read.
+     */
+    private long indexFileLastModified = -1;
+    private boolean indexModified = false;
+
+    private BuildCache(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    static BuildCache buildCacheInDirectory(Path directory) {
+        synchronized (BUILD_CACHES) {
+            return BUILD_CACHES.computeIfAbsent(
+                    directory.toAbsolutePath().normalize(),
+                    d -> new BuildCache(d.resolve(INDEX_FILE_NAME)));
+        }
+    }
+
+    /**
+     * Forgets all BuildCaches, e.g. to start a new "run" in tests. The
+     * BuildCaches are created again from their index files when needed.
+     */
+    static void forgetBuildCaches() {
+        synchronized (BUILD_CACHES) {
+            BUILD_CACHES.clear();
+        }
+    }
+
+    /**
+     * See {@link FileUtil#writeFilesIfOutdated(File[], File[], Consumer, Runnable)}.
+     */
+    static void writeFilesIfOutdated(
+            File[] targetFiles,
+            File[] dependencies,
+            Consumer<File> writeFile,
+            Runnable onFilesUpToDate) {
+        if (targetFiles.length == 0) {
+            throw new IllegalArgumentException("No target files specified"); //NON-NLS
+        }
+        Path directory = targetFiles[0].getAbsoluteFile().toPath().getParent();
+        buildCacheInDirectory(directory).writeIfOutdated(
+                targetFiles, dependencies, writeFile, onFilesUpToDate);
+    }
+
+    private void writeIfOutdated(
+            File[] targetFiles,
+            File[] dependencies,
+            Consumer<File> writeFile,
+            Runnable onFilesUpToDate) {
+
+        String targetsKey = Arrays.stream(targetFiles)
+                .map(f -> f.getAbsoluteFile().toPath().normalize().toString())
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(String.valueOf(SEPARATOR)));
+        String dependenciesDigest = dependenciesDigest(dependencies);
+        if (FileUtil.allFilesExist(targetFiles) &&
+                dependenciesDigest.equals(targetsDigest(targetsKey))) {
+            writeIndexIfModified();
+            onFilesUpToDate.run();
+            return;
+        }
+
+        // No need to write the index now: when writing the targets fails
+        // they are deleted or incomplete, and only complete targets match the
+        // (new) digest.
+        setTargetsDigest(targetsKey, null);
+        for (File f : targetFiles) {
+            FileUtil.deleteFile(f);
+        }
+
+        for (File f : targetFiles) {
+            writeFile.accept(f);
+        }
+
+        // The dependencies must not change while we create our target files 
+        // otherwise we may have some inconsistent state.
+        if (!dependenciesDigest.equals(dependenciesDigest(dependencies))) {
+            String affectedFileBulletList = Arrays.stream(targetFiles)
+                    .map(f -> "- " + f.getAbsolutePath())
+                    .collect(Collectors.joining(System.lineSeparator()));
+            writeIndexIfModified();
+            throw new IllegalStateException(
+                    String.format("The dependencies changed while processing.%nAffected:%s ", //NON-NLS
+                            affectedFileBulletList));
+        }
+
+        setTargetsDigest(targetsKey, dependenciesDigest);
+        writeIndexIfModified();
+    }
+
+    /**
+     * Returns a digest covering the paths and contents of all
+     * {@code dependencies}.
+     * <p>
+     * Only files not in the cache, with a changed size or last modified
+     * time, or racy files are hashed, in parallel when many files changed.
+     */
+    private String dependenciesDigest(File[] dependencies) {
+        Path[] paths = Arrays.stream(dependencies)
+                .map(f -> f.getAbsoluteFile().toPath().normalize())
+                .sorted()
+                .distinct()
+                .toArray(Path[]::new);
+        String[] digests = new String[paths.length];
+        List<Integer> changedIndices = new ArrayList<>();
+        List<FileDigest> changedFiles = new ArrayList<>();
+        synchronized (this) {
+            reloadIndexIfModified();
+            for (int i = 0; i < paths.length; i++) {
+                @Nullable BasicFileAttributes attributes = attributesOrNull(paths[i]);
+                if (attributes == null) {
+                    digests[i] = NO_FILE_DIGEST;
+                    if (fileDigests.remove(paths[i]) != null) {
+                        indexModified = true;
+                    }
+                    continue;
+                }
+                usedFiles.add(paths[i]);
+                long size = attributes.size();
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                @Nullable FileDigest cached = fileDigests.get(paths[i]);
+                if (cached != null &&
+                        cached.size == size && cached.lastModified == lastModified) {
+                    digests[i] = cached.digest;
+                } else {
+                    changedIndices.add(i);
+                    changedFiles.add(new FileDigest(size, lastModified, ""));
+                }
+            }
+        }
+
+        if (!changedIndices.isEmpty()) {
+            // files modified after this time may be racy
+            long hashStartTime = System.currentTimeMillis();
+            if (changedIndices.size() <= MAX_FILES_TO_HASH_INLINE) {
+                for (int i : changedIndices) {
+                    digests[i] = contentDigest(paths[i]);
+                }
+            } else {
+                forEachInParallel(
+                        changedIndices,
+                        Math.min(changedIndices.size(), MAX_HASH_CONCURRENCY),
+                        HASH_EXECUTOR,
+                        i -> digests[i] = contentDigest(paths[i]));
+            }
+            synchronized (this) {
+                for (int j = 0; j < changedIndices.size(); j++) {
+                    int i = changedIndices.get(j);
+                    FileDigest d = changedFiles.get(j);
+                    long lastModified = isRacy(d.lastModified, hashStartTime)
+                            ? RACY_LAST_MODIFIED
+                            : d.lastModified;
+                    fileDigests.put(paths[i],
+                            new FileDigest(d.size, lastModified, digests[i]));
+                }
+                indexModified = true;
+            }
+        }
+
+        MessageDigest messageDigest = newMessageDigest();
+        for (int i = 0; i < paths.length; i++) {
+            messageDigest.update(paths[i].toString().getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+            messageDigest.update(digests[i].getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) '\n');
+        }
+        return toHexString(messageDigest.digest());
+    }
+
+    private synchronized @Nullable String targetsDigest(String targetsKey) {
+        reloadIndexIfModified();
+        return targetsDigests.get(targetsKey);
+    }
+
+    private synchronized void setTargetsDigest(
+            String targetsKey, @Nullable String digest) {
+        reloadIndexIfModified();
+        if (digest == null) {
+            if (targetsDigests.remove(targetsKey) != null) {
+                indexModified = true;
+            }
+        } else if (!digest.equals(targetsDigests.put(targetsKey, digest))) {
+            indexModified = true;
+        }
+    }
+
+    /**
+     * Returns {@code true} when a file last modified at {@code lastModified}
+     * may have been modified again, without changing its last modified time,
+     * after it was hashed at {@code hashTime}.
+     */
+    private static boolean isRacy(long lastModified, long hashTime) {
+        return lastModified + MODIFICATION_TIME_GRANULARITY_MILLIS > hashTime;
+    }
+
+    private static @Nullable BasicFileAttributes attributesOrNull(Path path) {
+        try {
+            BasicFileAttributes attributes =
+                    Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentDigest(Path file) {
+        MessageDigest messageDigest = newMessageDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                messageDigest.update(buffer, 0, n);
+            }
+        } catch (NoSuchFileException e) {
+            return NO_FILE_DIGEST;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return toHexString(messageDigest.digest());
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHexString(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    //region Index File
+
+    // The index file is a text file, with one entry per line:
+    //
+    //     F<TAB>{size}<TAB>{lastModified}<TAB>{digest}<TAB>{path}
+    //     T<TAB>{dependenciesDigest}<TAB>{targetPath}[<TAB>{targetPath}...]
+
+    private long indexFileLastModifiedOnDisk() {
+        File file = indexFile.toFile();
+        return file.exists() ? file.lastModified() : -1;
+    }
+
+    /**
+     * (Re)reads the index file when it was changed since this object
+     * read or wrote it the last time (e.g. by another process).
+     */
+    private void reloadIndexIfModified() {
+        long lastModified = indexFileLastModifiedOnDisk();
+        if (lastModified == indexFileLastModified) {
+            return;
+        }
+        // changes not yet written are lost. This only means some files
+        // are hashed again or some targets are outdated.
+        indexModified = false;
+        fileDigests.clear();
+        targetsDigests.clear();
+        if (lastModified >= 0) {
+            readIndex();
+        }
+        indexFileLastModified = lastModified;
+    }
+
+    private void readIndex() {
+        try (BufferedReader reader =
+                     Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                readIndexEntry(line);
+            }
+        } catch (NoSuchFileException e) {
+            // the index file was deleted in the meantime: treat as empty.
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readIndexEntry(String line) {
+        String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+        try {
+            if (fields[0].equals(FILE_ENTRY_TAG) && fields.length == 5) {
+                fileDigests.put(Paths.get(fields[4]), new FileDigest(
+                        Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]),
+                        fields[3]));
+            } else if (fields[0].equals(TARGETS_ENTRY_TAG) && fields.length >= 3) {
+                String targetsKey = String.join(String.valueOf(SEPARATOR),
+                        Arrays.asList(fields).subList(2, fields.length));
+                targetsDigests.put(targetsKey, fields[1]);
+            }
+            // ignore unknown or corrupt entries. In the worst case this
+            // makes some targets outdated.
+        } catch (NumberFormatException e) {
+            // ignore corrupt entry
+        }
+    }
+
+    private synchronized void writeIndexIfModified() {
+        if (indexModified) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * Writes the index file to a temporary file first and then moves it
+     * to the index file, so readers never see a partially written index.
+     * <p>
+     * Only the digests of files used since this object was created are
+     * written.
+     */
+    private void writeIndex() {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tempFile = Files.createTempFile(
+                    indexFile.getParent(), INDEX_FILE_NAME, ".tmp"); //NON-NLS
+            try {
+                try (BufferedWriter writer =
+                             Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    for (Map.Entry<Path, FileDigest> e : fileDigests.entrySet()) {
+                        if (!usedFiles.contains(e.getKey())) {
+                            continue;
+                        }
+                        FileDigest d = e.getValue();
+                        writer.write(FILE_ENTRY_TAG + SEPARATOR + d.size +
+                                SEPARATOR + d.lastModified + SEPARATOR +
+                                d.digest + SEPARATOR + e.getKey() + '\n');
+                    }
+                    for (Map.Entry<String, String> e : targetsDigests.entrySet()) {
+                        writer.write(TARGETS_ENTRY_TAG + SEPARATOR +
+                                e.getValue() + SEPARATOR + e.getKey() + '\n');
+                    }
+                }
+                moveReplacing(tempFile, indexFile);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indexFileLastModified = indexFileLastModifiedOnDisk();
+        indexModified = false;
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    //endregion
+
+    private static final class FileDigest {
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+
+        private FileDigest(long size, long lastModified, String digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+
+/**
+ * Writes the texts of many files, in parallel and optionally skipping
+ * files that already have the content to write.
+ */
+final class BulkFileWriter implements WriteFilesResult {
+    private final WriteFilesOptions options;
+    private final AtomicInteger writtenFileCount = new AtomicInteger();
+    private final AtomicInteger skippedFileCount = new AtomicInteger();
+
+    private BulkFileWriter(WriteFilesOptions options) {
+        this.options = options;
+    }
+
+    static WriteFilesResult writeTexts(
+            Map<File, String> texts, WriteFilesOptions options) {
+        BulkFileWriter writer = new BulkFileWriter(options);
+        writer.write(texts);
+        return writer;
+    }
+
+    @Override
+    public int getWrittenFileCount() {
+        return writtenFileCount.get();
+    }
+
+    @Override
+    public int getSkippedFileCount() {
+        return skippedFileCount.get();
+    }
+
+    private void write(Map<File, String> texts) {
+        // create every directory only once, before writing the files
+        Set<Path> directories = new LinkedHashSet<>();
+        for (File file : texts.keySet()) {
+            Path directory = file.getAbsoluteFile().toPath().getParent();
+            if (directory != null) {
+                directories.add(directory);
+            }
+        }
+        try {
+            for (Path directory : directories) {
+                Files.createDirectories(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // encoding the text is done in the worker threads, too
+        forEachInParallel(texts.entrySet(), options.getMaxConcurrency(),
+                e -> writeText(e.getKey().toPath(), e.getValue()));
+    }
+
+    private void writeText(Path file, String text) {
+        byte[] bytes = text.getBytes(options.getCharset());
+        try {
+            if (options.getSkipUnchangedFiles() && hasContent(file, bytes)) {
+                skippedFileCount.incrementAndGet();
+                return;
+            }
+            Files.write(file, bytes);
+            writtenFileCount.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean hasContent(Path file, byte[] bytes) throws IOException {
+        return Files.isRegularFile(file) &&
+                Files.size(file) == bytes.length &&
+                Arrays.equals(Files.readAllBytes(file), bytes);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * Copies bytes between streams and channels, avoiding copies through the
+ * Java heap where possible.
+ * <p>
+ * When the source is a file {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * is used, letting the operating system move the bytes directly (e.g. via
+ * "sendfile"). Otherwise, when one side is a channel, the bytes go through
+ * a pooled direct buffer. Between two plain streams a pooled heap buffer is
+ * used.
+ */
+final class ChannelTransfer {
+    static final int BUFFER_SIZE = 1024 * 1024;
+    /**
+     * The maximal number of bytes moved by one {@code transferTo} call, so
+     * the progress is reported regularly.
+     */
+    private static final long MAX_TRANSFER_TO_COUNT = 8L * 1024 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 8;
+    private static final ConcurrentLinkedQueue<ByteBuffer> BUFFER_POOL =
+            new ConcurrentLinkedQueue<>();
+    private static final ConcurrentLinkedQueue<byte[]> HEAP_BUFFER_POOL =
+            new ConcurrentLinkedQueue<>();
+
+    private ChannelTransfer() {
+    }
+
+    /**
+     * Copies all bytes of {@code inputStream} to {@code outputStream} and
+     * returns the number of bytes copied.
+     * <p>
+     * {@code onBytesCopied}, when not {@code null}, is called with the
+     * total number of bytes copied so far, each time more bytes are copied.
+     * <p>
+     * The streams are not closed.
+     */
+    static long copy(
+            InputStream inputStream,
+            OutputStream outputStream,
+            @Nullable LongConsumer onBytesCopied) throws IOException {
+        boolean inputIsFile = inputStream instanceof FileInputStream;
+        boolean outputIsFile = outputStream instanceof FileOutputStream;
+        if (!inputIsFile && !outputIsFile) {
+            return copyStreams(inputStream, outputStream, onBytesCopied);
+        }
+
+        ReadableByteChannel source = inputIsFile
+                ? ((FileInputStream) inputStream).getChannel()
+                : Channels.newChannel(inputStream);
+        WritableByteChannel target = outputIsFile
+                ? ((FileOutputStream) outputStream).getChannel()
+                : Channels.newChannel(outputStream);
+        return transfer(source, target, onBytesCopied);
+    }
+
+    /**
+     * Transfers all bytes of {@code source} to {@code target}, like
+     * {@link #copy(InputStream, OutputStream, LongConsumer)}.
+     * <p>
+     * The channels are not closed.
+     */
+    static long transfer(
+            ReadableByteChannel source,
+            WritableByteChannel target,
+            @Nullable LongConsumer onBytesCopied) throws IOException {
+        long total = 0;
+        if (source instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) source;
+            long position = fileChannel.position();
+            long size = fileChannel.size();
+            while (position < size) {
+                long n = fileChannel.transferTo(
+                        position, Math.min(size - position, MAX_TRANSFER_TO_COUNT), target);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+                total += n;
+                report(onBytesCopied, total);
+            }
+            fileChannel.position(position);
+            // continue below to also copy bytes appended in the meantime,
+            // or the remainder when transferTo stopped early.
+        }
+
+        ByteBuffer buffer = borrowBuffer();
+        try {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+                report(onBytesCopied, total);
+            }
+        } finally {
+            returnBuffer(buffer);
+        }
+        return total;
+    }
+
+    private static long copyStreams(
+            InputStream inputStream,
+            OutputStream outputStream,
+            @Nullable LongConsumer onBytesCopied) throws IOException {
+        byte[] buffer = borrowHeapBuffer();
+        try {
+            long total = 0;
+            int n;
+            while ((n = inputStream.read(buffer)) >= 0) {
+                outputStream.write(buffer, 0, n);
+                total += n;
+                report(onBytesCopied, total);
+            }
+            return total;
+        } finally {
+            returnHeapBuffer(buffer);
+        }
+    }
+
+    private static void report(@Nullable LongConsumer onBytesCopied, long total) {
+        if (onBytesCopied != null) {
+            onBytesCopied.accept(total);
+        }
+    }
+
+    private static ByteBuffer borrowBuffer() {
+        @Nullable ByteBuffer buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private static void returnBuffer(ByteBuffer buffer) {
+        // The pool size is only roughly limited, which is good enough.
+        if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+            buffer.clear();
+            BUFFER_POOL.offer(buffer);
+        }
+    }
+
+    private static byte[] borrowHeapBuffer() {
+        byte @Nullable [] buffer = HEAP_BUFFER_POOL.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    private static void returnHeapBuffer(byte[] buffer) {
+        if (HEAP_BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+            HEAP_BUFFER_POOL.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.io;
+
+import org.abego.commons.progress.ProgressWithRange;
+import org.abego.commons.progress.Progresses;
+
+/**
+ * Options for copying the files of a directory tree, as used by
+ * {@link FileUtil#copyFilesInDirectoryDeep(java.io.File, java.io.File, CopyFilesOptions)}.
+ * <p>
+ * Override the methods to deviate from the defaults.
+ */
+public interface CopyFilesOptions {
+    CopyFilesOptions OPTIONS_DEFAULT = new CopyFilesOptions() {
+    };
+    int MAX_CONCURRENCY_DEFAULT = 4;
+
+    /**
+     * How to detect a target file is unchanged, i.e. need not be copied.
+     */
+    enum UnchangedFileDetection {
+        /**
+         * Always copy the files.
+         */
+        NONE,
+        /**
+         * Skip a file when the target file has the same size and the same
+         * last modified time as the source file.
+         * <p>
+         * Copied files get the last modified time of their source file, so
+         * a later copy will skip them as long as the source does not
+         * change.
+         */
+        SIZE_AND_LAST_MODIFIED,
+        /**
+         * Skip a file when the target file has the same content as the
+         * source file.
+         */
+        CONTENT
+    }
+
+    default UnchangedFileDetection getUnchangedFileDetection() {
+        return UnchangedFileDetection.NONE;
+    }
+
+    /**
+     * Returns {@code true} when files and directories in the target
+     * directory without a counterpart in the source directory should be
+     * deleted, {@code false} otherwise.
+     */
+    default boolean getDeleteStaleFiles() {
+        return false;
+    }
+
+    /**
+     * Returns the maximal number of files copied at the same time.
+     */
+    default int getMaxConcurrency() {
+        return MAX_CONCURRENCY_DEFAULT;
+    }
+
+    /**
+     * Returns the listener to inform about the progress of the copying,
+     * counting the files processed (copied or skipped).
+     */
+    default ProgressWithRange.Listener getProgressListener() {
+        return Progresses.getEmptyProgressListener();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.io;
+
+/**
+ * The result of copying the files of a directory tree, as returned by
+ * {@link FileUtil#copyFilesInDirectoryDeep(java.io.File, java.io.File, CopyFilesOptions)}.
+ */
+public interface CopyFilesResult {
+    /**
+     * Returns the number of files copied.
+     */
+    int getCopiedFileCount();
+
+    /**
+     * Returns the number of files not copied because the target file was
+     * unchanged.
+     */
+    int getSkippedFileCount();
+
+    /**
+     * Returns the number of stale files deleted in the target directory.
+     * <p>
+     * Deleted (stale) directories are not counted, only the files they
+     * contained.
+     */
+    int getDeletedFileCount();
+}
@@ -0,0 +1,297 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.io;
+
+import org.abego.commons.progress.ProgressWithRange;
+import org.abego.commons.progress.Progresses;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+
+/**
+ * Copies the files of a directory tree to another directory, in parallel
+ * and optionally skipping unchanged files and deleting stale files.
+ */
+final class DirectoryCopier implements CopyFilesResult {
+    /**
+     * Files of at least this size are copied with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * letting the operating system copy the bytes directly when possible.
+     */
+    private static final long TRANSFER_TO_MIN_SIZE = 1024L * 1024;
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+
+    private final Path sourceDirectory;
+    private final Path targetDirectory;
+    private final CopyFilesOptions options;
+    private final AtomicInteger copiedFileCount = new AtomicInteger();
+    private final AtomicInteger skippedFileCount = new AtomicInteger();
+    private final AtomicInteger deletedFileCount = new AtomicInteger();
+
+    private DirectoryCopier(
+            Path sourceDirectory, Path targetDirectory, CopyFilesOptions options) {
+        this.sourceDirectory = sourceDirectory;
+        this.targetDirectory = targetDirectory;
+        this.options = options;
+    }
+
+    static CopyFilesResult copyFilesInDirectoryDeep(
+            Path sourceDirectory, Path targetDirectory, CopyFilesOptions options) {
+        DirectoryCopier copier =
+                new DirectoryCopier(sourceDirectory, targetDirectory, options);
+        try {
+            copier.copy();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return copier;
+    }
+
+    @Override
+    public int getCopiedFileCount() {
+        return copiedFileCount.get();
+    }
+
+    @Override
+    public int getSkippedFileCount() {
+        return skippedFileCount.get();
+    }
+
+    @Override
+    public int getDeletedFileCount() {
+        return deletedFileCount.get();
+    }
+
+    private void copy() throws IOException {
+        // walk the source tree once, collecting the (relative) paths
+        List<Path> directories = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                directories.add(sourceDirectory.relativize(dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.add(sourceDirectory.relativize(file));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        for (Path directory : directories) {
+            Files.createDirectories(targetDirectory.resolve(directory));
+        }
+
+        ProgressWithRange progress = Progresses.createProgressWithRange(
+                "Copying files", files.size(), options.getProgressListener()); //NON-NLS
+        AtomicInteger doneCount = new AtomicInteger();
+        try {
+            forEachInParallel(files, options.getMaxConcurrency(), file -> {
+                copyFileIfChanged(file);
+                int n = doneCount.incrementAndGet();
+                // ProgressWithRange is not thread-safe
+                synchronized (progress) {
+                    if (n > progress.getValue()) {
+                        progress.update(n, file.toString());
+                    }
+                }
+            });
+        } finally {
+            synchronized (progress) {
+                progress.close();
+            }
+        }
+
+        if (options.getDeleteStaleFiles()) {
+            Set<Path> sourcePaths = new HashSet<>(directories);
+            sourcePaths.addAll(files);
+            deleteStaleFiles(sourcePaths);
+        }
+    }
+
+    private void copyFileIfChanged(Path file) {
+        Path source = sourceDirectory.resolve(file);
+        Path target = targetDirectory.resolve(file);
+        try {
+            BasicFileAttributes sourceAttributes =
+                    Files.readAttributes(source, BasicFileAttributes.class);
+            if (isUnchanged(source, sourceAttributes, target)) {
+                skippedFileCount.incrementAndGet();
+                return;
+            }
+            if (sourceAttributes.size() >= TRANSFER_TO_MIN_SIZE) {
+                transferFile(source, target);
+            } else {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.setLastModifiedTime(target, sourceAttributes.lastModifiedTime());
+            copiedFileCount.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isUnchanged(
+            Path source, BasicFileAttributes sourceAttributes, Path target)
+            throws IOException {
+        CopyFilesOptions.UnchangedFileDetection detection =
+                options.getUnchangedFileDetection();
+        if (detection == CopyFilesOptions.UnchangedFileDetection.NONE ||
+                !Files.isRegularFile(target)) {
+            return false;
+        }
+        BasicFileAttributes targetAttributes =
+                Files.readAttributes(target, BasicFileAttributes.class);
+        if (targetAttributes.size() != sourceAttributes.size()) {
+            return false;
+        }
+        if (detection == CopyFilesOptions.UnchangedFileDetection.SIZE_AND_LAST_MODIFIED) {
+            FileTime sourceTime = sourceAttributes.lastModifiedTime();
+            return sourceTime.equals(targetAttributes.lastModifiedTime());
+        }
+        return haveSameContent(source, target);
+    }
+
+    /**
+     * Returns {@code true} when the files {@code a} and {@code b}, known to
+     * be of the same size, have the same content.
+     */
+    private static boolean haveSameContent(Path a, Path b) throws IOException {
+        try (InputStream inA = Files.newInputStream(a);
+             InputStream inB = Files.newInputStream(b)) {
+            byte[] bufferA = new byte[COMPARE_BUFFER_SIZE];
+            byte[] bufferB = new byte[COMPARE_BUFFER_SIZE];
+            while (true) {
+                int n = readFully(inA, bufferA);
+                if (n != readFully(inB, bufferB)) {
+                    return false;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (bufferA[i] != bufferB[i]) {
+                        return false;
+                    }
+                }
+                if (n < COMPARE_BUFFER_SIZE) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static int readFully(InputStream inputStream, byte[] buffer)
+            throws IOException {
+        int n = 0;
+        while (n < buffer.length) {
+            int count = inputStream.read(buffer, n, buffer.length - n);
+            if (count < 0) {
+                break;
+            }
+            n += count;
+        }
+        return n;
+    }
+
+    private static void transferFile(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target,
+                     StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private void deleteStaleFiles(Set<Path> sourcePaths) throws IOException {
+        Files.walkFileTree(targetDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+                Path path = targetDirectory.relativize(dir);
+                if (sourcePaths.contains(path)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                deleteDeep(dir);
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                if (!sourcePaths.contains(targetDirectory.relativize(file))) {
+                    Files.delete(file);
+                    deletedFileCount.incrementAndGet();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void deleteDeep(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                Files.delete(file);
+                deletedFileCount.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e)
+                    throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Spliterator} over the paths in a directory tree, reading the
+ * directories lazily, one at a time.
+ * <p>
+ * The spliterator can be split across the directories not yet read (and
+ * the entries of the current directory), so a parallel stream processes
+ * different subtrees in different threads.
+ * <p>
+ * Symbolic links are not followed.
+ */
+final class DirectoryWalkSpliterator implements Spliterator<Path> {
+    /**
+     * The minimal number of remaining entries of the current directory to
+     * split them into two spliterators.
+     */
+    private static final int MIN_ENTRIES_TO_SPLIT = 64;
+
+    private final BiPredicate<Path, BasicFileAttributes> selector;
+    private final Predicate<Path> directorySelector;
+    /**
+     * The directories still to read, used as a stack: directories found
+     * are added at the front, and directories are read from the front.
+     * Splitting takes the directories at the end, i.e. the ones found
+     * earliest, typically with the larger subtrees.
+     */
+    private final Deque<Path> pendingDirectories;
+    private List<Path> entries;
+    private int entryIndex = 0;
+    /**
+     * {@code true} when the subdirectories in {@link #entries} must still be
+     * added to the {@link #pendingDirectories} when they are reached,
+     * {@code false} when {@link #trySplit()} already added them.
+     */
+    private boolean entriesDirectoriesToAdd;
+
+    private DirectoryWalkSpliterator(
+            BiPredicate<Path, BasicFileAttributes> selector,
+            Predicate<Path> directorySelector,
+            Deque<Path> pendingDirectories,
+            List<Path> entries,
+            boolean entriesDirectoriesToAdd) {
+        this.selector = selector;
+        this.directorySelector = directorySelector;
+        this.pendingDirectories = pendingDirectories;
+        this.entries = entries;
+        this.entriesDirectoriesToAdd = entriesDirectoriesToAdd;
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the paths in the {@code directory}
+     * and deeper that are accepted by the {@code selector}.
+     * <p>
+     * Only subdirectories accepted by the {@code directorySelector} are
+     * searched.
+     */
+    static Spliterator<Path> newDirectoryWalkSpliterator(
+            Path directory,
+            BiPredicate<Path, BasicFileAttributes> selector,
+            Predicate<Path> directorySelector) {
+        Deque<Path> pendingDirectories = new ArrayDeque<>();
+        pendingDirectories.add(directory);
+        return new DirectoryWalkSpliterator(
+                selector, directorySelector, pendingDirectories, new ArrayList<>(), true);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Path> action) {
+        while (true) {
+            if (entryIndex >= entries.size()) {
+                Path directory = pendingDirectories.pollFirst();
+                if (directory == null) {
+                    return false;
+                }
+                entries = entriesOf(directory);
+                entryIndex = 0;
+                entriesDirectoriesToAdd = true;
+                continue;
+            }
+
+            Path entry = entries.get(entryIndex);
+            entryIndex++;
+            @Nullable BasicFileAttributes attributes = attributesOrNull(entry);
+            if (attributes == null) {
+                // entry was deleted in the meantime
+                continue;
+            }
+            if (entriesDirectoriesToAdd
+                    && attributes.isDirectory() && directorySelector.test(entry)) {
+                pendingDirectories.addFirst(entry);
+            }
+            if (selector.test(entry, attributes)) {
+                action.accept(entry);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public @Nullable Spliterator<Path> trySplit() {
+        if (entryIndex >= entries.size() && pendingDirectories.size() == 1) {
+            // Nothing to split yet (e.g. a new spliterator with just the root
+            // directory): read the directory and schedule its subdirectories
+            // now, so they can be split.
+            readDirectoryForSplit(pendingDirectories.pollFirst());
+        }
+
+        int directoryCount = pendingDirectories.size();
+        if (directoryCount >= 2) {
+            Deque<Path> splitDirectories = new ArrayDeque<>();
+            for (int i = directoryCount / 2; i > 0; i--) {
+                splitDirectories.addFirst(pendingDirectories.pollLast());
+            }
+            return new DirectoryWalkSpliterator(
+                    selector, directorySelector, splitDirectories, new ArrayList<>(), true);
+        }
+
+        int remainingEntries = entries.size() - entryIndex;
+        if (remainingEntries >= MIN_ENTRIES_TO_SPLIT) {
+            int splitIndex = entryIndex + remainingEntries / 2;
+            List<Path> splitEntries = entries.subList(splitIndex, entries.size());
+            entries = entries.subList(0, splitIndex);
+            return new DirectoryWalkSpliterator(
+                    selector, directorySelector, new ArrayDeque<>(), splitEntries,
+                    entriesDirectoriesToAdd);
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL;
+    }
+
+    /**
+     * Makes the entries of the {@code directory} the current entries and
+     * adds its subdirectories to the {@link #pendingDirectories}.
+     */
+    private void readDirectoryForSplit(Path directory) {
+        entries = entriesOf(directory);
+        entryIndex = 0;
+        entriesDirectoriesToAdd = false;
+        for (Path entry : entries) {
+            @Nullable BasicFileAttributes attributes = attributesOrNull(entry);
+            if (attributes != null
+                    && attributes.isDirectory() && directorySelector.test(entry)) {
+                pendingDirectories.addFirst(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the entries of the {@code directory}.
+     * <p>
+     * The entries are read completely, so no directory stays open while
+     * the stream is consumed.
+     */
+    private static List<Path> entriesOf(Path directory) {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                result.add(entry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private static @Nullable BasicFileAttributes attributesOrNull(Path path) {
+        try {
+            return Files.readAttributes(
+                    path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+
+/**
+ * Sorts the lines of a text of arbitrary size, using bounded memory
+ * ("external merge sort").
+ * <p>
+ * The lines are read into runs of limited size. The runs are sorted in
+ * parallel and written to temporary files, that are finally merged
+ * (k-way merge). When the whole text fits into a single run it is sorted in
+ * memory and no temporary files are used.
+ */
+final class ExternalLineSorter {
+    /**
+     * The maximal number of runs merged at once, limiting the number of
+     * open files. When there are more runs they are merged in multiple
+     * passes.
+     */
+    private static final int MAX_MERGE_FAN_IN = 64;
+    private static final String RUN_FILE_PREFIX = "run"; //NON-NLS
+    private static final String RUN_FILE_SUFFIX = ".txt"; //NON-NLS
+    /**
+     * The charset of the temporary files.
+     */
+    private static final Charset RUN_CHARSET = StandardCharsets.UTF_8;
+
+    private final SortLinesOptions options;
+    private final Comparator<String> comparator;
+    private final BufferedReader reader;
+    private final List<File> tempFiles = new ArrayList<>();
+    @Nullable
+    private File tempDirectory;
+    private boolean tempDirectoryCreated;
+
+    private ExternalLineSorter(Reader reader, SortLinesOptions options) {
+        this.reader = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        this.options = options;
+        this.comparator = options.getComparator();
+    }
+
+    /**
+     * Writes the lines read from {@code reader}, sorted, to {@code output},
+     * encoded with {@code charset} and each line terminated by a
+     * newline ('\n').
+     * <p>
+     * Neither the reader nor the output are closed.
+     */
+    static void sortLines(
+            Reader reader, OutputStream output, Charset charset, SortLinesOptions options) {
+        ExternalLineSorter sorter = new ExternalLineSorter(reader, options);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, charset));
+            sorter.sortLines(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            sorter.deleteTempFiles();
+        }
+    }
+
+    private void sortLines(Writer writer) throws IOException {
+        RunIterator runs = new RunIterator();
+        if (runs.isSingleRun()) {
+            // all lines fit into one run: sort in memory
+            String[] lines = runs.next().lines;
+            Arrays.parallelSort(lines, comparator);
+            writeLines(writer, lines);
+            return;
+        }
+
+        List<@Nullable File> runFiles = new ArrayList<>();
+        forEachInParallel(
+                () -> runs,
+                options.getMaxConcurrency(),
+                run -> {
+                    // Arrays.sort is stable, so equal lines keep their order
+                    Arrays.sort(run.lines, comparator);
+                    File file = writeRunFile(run.lines);
+                    synchronized (runFiles) {
+                        while (runFiles.size() <= run.index) {
+                            runFiles.add(null);
+                        }
+                        runFiles.set(run.index, file);
+                    }
+                });
+
+        List<File> files = new ArrayList<>();
+        for (@Nullable File f : runFiles) {
+            if (f != null) {
+                files.add(f);
+            }
+        }
+        while (files.size() > MAX_MERGE_FAN_IN) {
+            files = mergePass(files);
+        }
+        mergeRunFiles(files, writer);
+    }
+
+    /**
+     * Returns the lines of the next run, starting with {@code firstLine}.
+     * Returns an empty array when {@code firstLine} is {@code null}.
+     */
+    private String[] readRun(@Nullable String firstLine) throws IOException {
+        List<String> lines = new ArrayList<>();
+        long charCount = 0;
+        int runSize = options.getRunSize();
+        @Nullable String line = firstLine;
+        while (line != null) {
+            lines.add(line);
+            charCount += line.length() + 1;
+            if (charCount >= runSize) {
+                break;
+            }
+            line = reader.readLine();
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private void writeLines(Writer writer, String[] lines) throws IOException {
+        @Nullable String previous = null;
+        for (String line : lines) {
+            previous = writeLine(writer, line, previous);
+        }
+    }
+
+    /**
+     * Writes the {@code line}, unless it is a duplicate of the
+     * {@code previous} line written and duplicates are removed, and returns
+     * the line now to be considered the previous line.
+     */
+    private String writeLine(Writer writer, String line, @Nullable String previous)
+            throws IOException {
+        if (previous != null &&
+                options.getRemoveDuplicates() &&
+                comparator.compare(previous, line) == 0) {
+            return previous;
+        }
+        writer.write(line);
+        writer.write('\n');
+        return line;
+    }
+
+    private File writeRunFile(String[] lines) {
+        try {
+            File file = newTempFile();
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), RUN_CHARSET)) {
+                writeLines(writer, lines);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Merges groups of {@link #MAX_MERGE_FAN_IN} run files into new run
+     * files, deleting the merged files, and returns the new files.
+     */
+    private List<File> mergePass(List<File> files) throws IOException {
+        List<File> result = new ArrayList<>();
+        for (int i = 0; i < files.size(); i += MAX_MERGE_FAN_IN) {
+            List<File> group = files.subList(
+                    i, Math.min(files.size(), i + MAX_MERGE_FAN_IN));
+            File file = newTempFile();
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), RUN_CHARSET)) {
+                mergeRunFiles(group, writer);
+            }
+            for (File f : group) {
+                Files.deleteIfExists(f.toPath());
+            }
+            result.add(file);
+        }
+        return result;
+    }
+
+    private void mergeRunFiles(List<File> files, Writer writer) throws IOException {
+        // Ties are broken by the run index, keeping equal lines in their
+        // original order.
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Math.max(1, files.size()),
+                (a, b) -> {
+                    int c = comparator.compare(a.line, b.line);
+                    return c != 0 ? c : Integer.compare(a.index, b.index);
+                });
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                BufferedReader r = Files.newBufferedReader(files.get(i).toPath(), RUN_CHARSET);
+                readers.add(r);
+                @Nullable String line = r.readLine();
+                if (line != null) {
+                    queue.add(new RunReader(i, r, line));
+                }
+            }
+
+            @Nullable String previous = null;
+            @Nullable RunReader runReader;
+            while ((runReader = queue.poll()) != null) {
+                previous = writeLine(writer, runReader.line, previous);
+                @Nullable String line = runReader.reader.readLine();
+                if (line != null) {
+                    runReader.line = line;
+                    queue.add(runReader);
+                }
+            }
+        } finally {
+            for (BufferedReader r : readers) {
+                r.close();
+            }
+        }
+    }
+
+    private synchronized File newTempFile() throws IOException {
+        @Nullable File dir = tempDirectory;
+        if (dir == null) {
+            dir = options.getTempDirectory();
+            if (dir == null) {
+                dir = FileUtil.tempDirectoryForRun();
+                tempDirectoryCreated = true;
+            }
+            tempDirectory = dir;
+        }
+        File file = File.createTempFile(RUN_FILE_PREFIX, RUN_FILE_SUFFIX, dir);
+        tempFiles.add(file);
+        return file;
+    }
+
+    private synchronized void deleteTempFiles() {
+        for (File file : tempFiles) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        tempFiles.clear();
+        @Nullable File dir = tempDirectory;
+        if (dir != null && tempDirectoryCreated) {
+            //noinspection ResultOfMethodCallIgnored
+            dir.delete();
+        }
+    }
+
+    private static final class Run {
+        private final int index;
+        private final String[] lines;
+
+        private Run(int index, String[] lines) {
+            this.index = index;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Provides the runs, reading the lines of a run only when the run is
+     * requested.
+     * <p>
+     * The first run is read in advance, to tell if there is only a single
+     * run, but not referenced any more once it was returned.
+     */
+    private final class RunIterator implements Iterator<Run> {
+        @Nullable
+        private Run firstRun;
+        @Nullable
+        private String pendingLine;
+        private int nextIndex;
+
+        private RunIterator() throws IOException {
+            this.firstRun = new Run(nextIndex++, readRun(reader.readLine()));
+            this.pendingLine = reader.readLine();
+        }
+
+        /**
+         * Returns {@code true} when all lines are in the first run, i.e. the
+         * iterator provides exactly one run.
+         */
+        boolean isSingleRun() {
+            return pendingLine == null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return firstRun != null || pendingLine != null;
+        }
+
+        @Override
+        public Run next() {
+            @Nullable Run run = firstRun;
+            if (run != null) {
+                firstRun = null;
+                return run;
+            }
+            if (pendingLine == null) {
+                throw new NoSuchElementException();
+            }
+            try {
+                String[] lines = readRun(pendingLine);
+                pendingLine = reader.readLine();
+                return new Run(nextIndex++, lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class RunReader {
+        private final int index;
+        private final BufferedReader reader;
+        private String line;
+
+        private RunReader(int index, BufferedReader reader, String line) {
+            this.index = index;
+            this.reader = reader;
+            this.line = line;
+        }
+    }
+}
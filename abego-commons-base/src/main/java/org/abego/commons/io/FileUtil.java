@@ -36,7 +36,10 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.net.JarURLConnection;
 import java.net.URISyntaxException;
@@ -52,25 +55,28 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.abego.commons.io.DirectoryWalkSpliterator.newDirectoryWalkSpliterator;
 import static org.abego.commons.io.FileCannotBeDeletedException.newFileCannotBeDeletedException;
 import static org.abego.commons.io.InputStreamUtil.copyStream;
-import static org.abego.commons.lang.StringUtil.removePrefix;
 import static org.abego.commons.util.ListUtil.toList;
 
 public final class FileUtil {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
 
     FileUtil() {
         throw new MustNotInstantiateException();
@@ -341,6 +347,50 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Return the text of the gzip compressed <code>file</code> (a text file
+     * encoded with the {@link Charset} <code>charset</code>), as written
+     * e.g. by {@link #writeTextCompressed(File, String, Charset)} or the gzip
+     * tool.
+     * <p>
+     * The file is decompressed while it is read.
+     */
+    public static String textOfCompressed(File file, Charset charset) {
+        try (InputStream fileInput = Files.newInputStream(file.toPath());
+             Reader reader = new InputStreamReader(
+                     new GZIPInputStream(fileInput, GZIP_BUFFER_SIZE), charset)) {
+            StringBuilder result = new StringBuilder();
+            char[] buffer = new char[GZIP_BUFFER_SIZE];
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                result.append(buffer, 0, n);
+            }
+            return result.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Return the text of the gzip compressed <code>file</code>, a UTF-8
+     * encoded text file.
+     */
+    public static String textOfCompressed(File file) {
+        return textOfCompressed(file, UTF_8);
+    }
+
+    /**
+     * Return a new {@link TextFileCache}, caching texts with a total length
+     * of up to <code>capacity</code> characters.
+     * <p>
+     * Use the cache instead of {@link #textOf(File, Charset)} for files that
+     * are read frequently, but rarely change, like configuration files
+     * or templates.
+     */
+    public static TextFileCache newTextFileCache(long capacity) {
+        return TextFileCacheImpl.newTextFileCache(capacity);
+    }
+
     /**
      * Return the text of the file named <code>pathname</code>, a
      * UTF-8 encoded text file.
@@ -383,6 +433,23 @@ public final class FileUtil {
         return textOfFileIfExisting(file, UTF_8);
     }
 
+    /**
+     * Reads the lines of <code>file</code> (a text file encoded with the
+     * {@link Charset} <code>charset</code>) and writes them, sorted, to the
+     * <code>outputStream</code>.
+     * <p>
+     * See {@link InputStreamUtil#sortLines(InputStream, Charset, OutputStream, SortLinesOptions)}
+     * for details.
+     */
+    public static void sortLines(
+            File file, Charset charset, OutputStream outputStream, SortLinesOptions options) {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            InputStreamUtil.sortLines(inputStream, charset, outputStream, options);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Return the text of the file named <code>pathname</code> (a text file
      * encoded with the {@link Charset} named <code>charsetName</code>).
@@ -699,6 +766,37 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Copies the <code>source</code> file to <code>destination</code>,
+     * gzip compressing it in parallel.
+     * <p>
+     * See {@link OutputStreamUtil#newParallelGZIPOutputStream(OutputStream)}.
+     */
+    public static void copyFileCompressed(File source, File destination) {
+        ensureDirectoryExists(destination.getParentFile());
+        try (InputStream input = Files.newInputStream(source.toPath());
+             OutputStream fileOutput = Files.newOutputStream(destination.toPath());
+             OutputStream output = OutputStreamUtil.newParallelGZIPOutputStream(fileOutput)) {
+            copyStream(input, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the gzip compressed <code>source</code> file to
+     * <code>destination</code>, decompressing it.
+     */
+    public static void copyFileDecompressed(File source, File destination) {
+        ensureDirectoryExists(destination.getParentFile());
+        try (InputStream fileInput = Files.newInputStream(source.toPath());
+             InputStream input = new GZIPInputStream(fileInput, GZIP_BUFFER_SIZE)) {
+            Files.copy(input, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Copy (the content of) the resource <code>resourceName</code> of
      * <code>theClass</code> to <code>file</code>.
@@ -732,6 +830,53 @@ public final class FileUtil {
         return writeText(file, text, UTF_8);
     }
 
+    /**
+     * Writes the {@code text} to {@code file}, encoded with {@code charset}
+     * and gzip compressed.
+     * <p>
+     * The text is compressed in parallel, see
+     * {@link OutputStreamUtil#newParallelGZIPOutputStream(OutputStream)}.
+     */
+    public static File writeTextCompressed(File file, String text, Charset charset) {
+        ensureDirectoryExists(file.getParentFile());
+        runIOCode(() -> {
+            try (OutputStream fileOutput = new FileOutputStream(file);
+                 OutputStream outputStream =
+                         OutputStreamUtil.newParallelGZIPOutputStream(fileOutput);
+                 BufferedWriter out = new BufferedWriter(
+                         new OutputStreamWriter(outputStream, charset))) {
+                out.write(text);
+            }
+        });
+        return file;
+    }
+
+    public static File writeTextCompressed(File file, String text) {
+        return writeTextCompressed(file, text, UTF_8);
+    }
+
+    /**
+     * Writes the {@code texts} to their files (the keys of the map), using
+     * the given {@code options}, and returns the numbers of files written
+     * and skipped.
+     * <p>
+     * Every directory needed is created once, before any file is written.
+     * The texts are encoded and written in parallel. Depending on the
+     * options files already having the content to write are not touched.
+     */
+    public static WriteFilesResult writeTexts(
+            Map<File, String> texts, WriteFilesOptions options) {
+        return BulkFileWriter.writeTexts(texts, options);
+    }
+
+    /**
+     * As {@link #writeTexts(Map, WriteFilesOptions)}, using the default
+     * options.
+     */
+    public static WriteFilesResult writeTexts(Map<File, String> texts) {
+        return writeTexts(texts, WriteFilesOptions.OPTIONS_DEFAULT);
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     public static File writeText(File directory, String fileName, String text) {
         return writeText(file(directory, fileName), text);
@@ -826,6 +971,25 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Copies the files in the {@code sourceDirectory} and deeper to the
+     * {@code targetDirectory}, using the given {@code options}, and returns
+     * the numbers of files copied, skipped and deleted.
+     * <p>
+     * The source tree is walked once, and the files are copied in parallel.
+     * Depending on the options unchanged files are skipped (incremental
+     * copy) and files in the {@code targetDirectory} without a counterpart
+     * in the {@code sourceDirectory} are deleted (synchronization).
+     */
+    public static CopyFilesResult copyFilesInDirectoryDeep(
+            File sourceDirectory, File targetDirectory, CopyFilesOptions options) {
+        checkIsDirectory(sourceDirectory);
+        ensureDirectoryExists(targetDirectory);
+
+        return DirectoryCopier.copyFilesInDirectoryDeep(
+                sourceDirectory.toPath(), targetDirectory.toPath(), options);
+    }
+
     public static void copyResourcesToDirectory(
             File directory,
             Class<?> theClass,
@@ -875,7 +1039,7 @@ public final class FileUtil {
         try {
             URLConnection urlConnection = rootResourceUrl.openConnection();
             if (urlConnection instanceof JarURLConnection) {
-                copyJarResourcesDeep(
+                JarResourceExtractor.extractJarResourcesDeep(
                         (JarURLConnection) urlConnection, targetDirectory);
             } else {
                 if (copyDirectoryContent) {
@@ -917,31 +1081,6 @@ public final class FileUtil {
         copyResourcesDeep(resource, targetDirectory, copyDirectoryContent);
     }
 
-    private static void copyJarResourcesDeep(
-            JarURLConnection jarURLConnection, File targetDirectory) throws IOException {
-
-        JarFile jarFile = jarURLConnection.getJarFile();
-        String prefix = jarURLConnection.getEntryName();
-
-        for (Enumeration<JarEntry> e = jarFile.entries(); e.hasMoreElements(); ) {
-            JarEntry entry = e.nextElement();
-            if (prefix == null || entry.getName().startsWith(prefix)) {
-                String filename = removePrefix(entry.getName(), prefix);
-
-                File f = new File(targetDirectory, filename);
-                if (!entry.isDirectory()) {
-                    try (InputStream entryInputStream = jarFile.getInputStream(entry);
-                         FileOutputStream fos = new FileOutputStream(f)) {
-                        copyStream(entryInputStream, fos);
-                    }
-                } else {
-                    ensureDirectoryExists(f);
-                }
-            }
-        }
-    }
-
-
     public static File[] filesInDirectoryAndDeeper(File directory, Predicate<File> selector) {
         List<File> result = new ArrayList<>();
         withFilesInDirectoryAndDeeperDo(directory, selector, result::add);
@@ -974,17 +1113,59 @@ public final class FileUtil {
         withFilesInDirectoryAndDeeperDo(directory, f -> true, action);
     }
 
+    /**
+     * Returns a lazy {@link Stream} of the paths in the {@code directory}
+     * and deeper (files and directories) that are accepted by the
+     * {@code selector}.
+     * <p>
+     * The {@code selector} gets the attributes already read for a path, so
+     * it does not need to access the file system again. Only the
+     * subdirectories accepted by the {@code directorySelector} are searched,
+     * i.e. other subdirectories are pruned, with all their content.
+     * <p>
+     * The directories are read one at a time, while the stream is consumed.
+     * When {@code parallel} is {@code true} the stream is parallel, with
+     * different subtrees searched in different threads.
+     * <p>
+     * Symbolic links are not followed. The paths are returned in no
+     * particular order.
+     */
+    public static Stream<Path> pathsInDirectoryAndDeeper(
+            Path directory,
+            BiPredicate<Path, BasicFileAttributes> selector,
+            Predicate<Path> directorySelector,
+            boolean parallel) {
+        return StreamSupport.stream(
+                newDirectoryWalkSpliterator(directory, selector, directorySelector),
+                parallel);
+    }
+
+    /**
+     * Returns a lazy, sequential {@link Stream} of the paths in the
+     * {@code directory} and deeper (files and directories) that are
+     * accepted by the {@code selector}.
+     * <p>
+     * See {@link #pathsInDirectoryAndDeeper(Path, BiPredicate, Predicate, boolean)}
+     * for details.
+     */
+    public static Stream<Path> pathsInDirectoryAndDeeper(
+            Path directory, BiPredicate<Path, BasicFileAttributes> selector) {
+        return pathsInDirectoryAndDeeper(directory, selector, d -> true, false);
+    }
+
 
     //region writeFilesIfOutdated
 
     /**
      * Writes the {@code targetFile} using {@code writeFile} when the
-     * targetFile does not exist or any file of the {@code dependencies} has
-     * changed since the targetFile was created.
+     * targetFile does not exist or the content of any file of the
+     * {@code dependencies} has changed since the targetFile was created.
      * <p>
      * To be able to check if any file of the {@code dependencies} has changed
-     * a hidden file ".info.{nameOfTargetFile}" is maintained in the directory
-     * of the targetFile.
+     * a hidden build cache index file ".buildcache" is maintained in the
+     * directory of the targetFile, holding the content digests of the
+     * dependencies. A dependency is only read again when its size or last
+     * modified time changed.
      * <p>
      * The method will fail when files of the dependencies are changed while
      * the targetFile is created.
@@ -994,13 +1175,8 @@ public final class FileUtil {
      */
     public static void writeFileIfOutdated(
             File targetFile, File[] dependencies, Consumer<File> writeFile, Runnable onFileUpToDate) {
-
-        File infoFile = new File(
-                targetFile.getAbsoluteFile().getParentFile(),
-                ".info." + targetFile.getName());
         writeFilesIfOutdated(
-                new File[]{targetFile}, infoFile, dependencies,
-                writeFile, onFileUpToDate);
+                new File[]{targetFile}, dependencies, writeFile, onFileUpToDate);
     }
 
     /**
@@ -1012,51 +1188,29 @@ public final class FileUtil {
         writeFileIfOutdated(targetFile, dependencies, writeFile, () -> {});
     }
 
-    private static void writeFilesIfOutdated(
-            File[] targetFiles, File infoFile, File[] dependencies, Consumer<File> writeFile, Runnable onFileUpToDate) {
-
-        String dependenciesSummary = fileSummaryText(dependencies);
-        if (allFilesExist(targetFiles) && infoFile.exists()) {
-            // We don't need to create a new targetFiles when they already exist 
-            // and all files they depend on haven't changed since the last time
-            // the targetFiles were created.
-            String oldFileSummary = textOf(infoFile);
-            if (oldFileSummary.equals(dependenciesSummary)) {
-                onFileUpToDate.run();
-                return;
-            }
-        }
-
-        for (File f : targetFiles) {
-            deleteFile(f);
-        }
-        deleteFile(infoFile);
-
-        for (File f : targetFiles) {
-            writeFile.accept(f);
-        }
-
-        // The dependencies must not change while we create our target files 
-        // otherwise we may have some inconsistent state.
-        if (!dependenciesSummary.equals(fileSummaryText(dependencies))) {
-            String affectedFileBulletList = Arrays.stream(targetFiles)
-                    .map(f -> "- " + f.getAbsolutePath())
-                    .collect(Collectors.joining(System.lineSeparator()));
-            throw new IllegalStateException(
-                    String.format("The dependencies changed while processing.%nAffected:%s ", //NON-NLS
-                            affectedFileBulletList));
-        }
-
-        writeText(infoFile, dependenciesSummary);
+    /**
+     * Writes all {@code targetFiles} using {@code writeFile} (called once
+     * per target file) when any of the targetFiles does not exist or the
+     * content of any file of the {@code dependencies} has changed since the
+     * targetFiles were created.
+     * <p>
+     * The targetFiles are handled as one unit: when one of them is outdated
+     * all are written again.
+     * <p>
+     * The build cache index is maintained in the directory of the first
+     * target file. See
+     * {@link #writeFileIfOutdated(File, File[], Consumer, Runnable)} for
+     * details.
+     * <p>
+     * Calls {@code onFilesUpToDate} when the files are up-to-date and
+     * {@code writeFile} is not called.
+     */
+    public static void writeFilesIfOutdated(
+            File[] targetFiles, File[] dependencies, Consumer<File> writeFile, Runnable onFilesUpToDate) {
+        BuildCache.writeFilesIfOutdated(
+                targetFiles, dependencies, writeFile, onFilesUpToDate);
     }
 
-
-    private static String fileSummaryText(File[] files) {
-        return Arrays.stream(files)
-                .sorted()
-                .map(f -> f.getAbsolutePath() + " - " + f.length() + " - " + f.lastModified())
-                .collect(Collectors.joining("\n"));
-    }
     //endregion
     //endregion
 
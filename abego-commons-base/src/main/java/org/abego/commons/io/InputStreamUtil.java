@@ -24,24 +24,29 @@
 package org.abego.commons.io;
 
 import org.abego.commons.lang.exception.MustNotInstantiateException;
+import org.abego.commons.lineprocessing.LineProcessing;
 import org.abego.commons.text.LineProcessor;
 import org.abego.commons.util.ScannerUtil;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
-
-import static java.nio.file.Files.copy;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-import static org.abego.commons.io.FileUtil.runIOCode;
+import java.util.function.LongConsumer;
 
 public final class InputStreamUtil {
 
@@ -79,10 +84,44 @@ public final class InputStreamUtil {
      * Write the content of the <code>inputStream</code> to <code>file</code>.
      */
     public static void write(InputStream inputStream, File file) {
-        runIOCode(() -> copy(inputStream, file.toPath(), REPLACE_EXISTING));
+        write(inputStream, file, null);
     }
 
-    private static final int COPY_STREAM_BUFFER_SIZE = 4096;
+    /**
+     * Write the content of the <code>inputStream</code> to <code>file</code>
+     * and return the number of bytes written.
+     * <p>
+     * An existing <code>file</code> is replaced by a new file, i.e. when
+     * <code>file</code> is a symbolic link the link is replaced, not the file
+     * it links to.
+     * <p>
+     * When <code>inputStream</code> reads a file the bytes are transferred
+     * directly by the operating system, where possible. Otherwise they are
+     * written through a pooled direct buffer.
+     * <p>
+     * <code>onBytesCopied</code>, when not <code>null</code>, is called with
+     * the total number of bytes written so far, each time more bytes were
+     * written (see also {@link org.abego.commons.progress.Progresses#createByteCountUpdater(org.abego.commons.progress.ProgressWithRange, long)}).
+     */
+    public static long write(
+            InputStream inputStream, File file, @Nullable LongConsumer onBytesCopied) {
+        try {
+            // replace the file, like Files.copy(..., REPLACE_EXISTING)
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (FileChannel target = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = inputStream instanceof FileInputStream
+                    ? ((FileInputStream) inputStream).getChannel()
+                    : Channels.newChannel(inputStream);
+            return ChannelTransfer.transfer(source, target, onBytesCopied);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
     /**
      * Reads the (UTF-8 encoded) {@code inputStream} line-by-line and passes
@@ -112,18 +151,101 @@ public final class InputStreamUtil {
         lineProcessor.end(lineNumber);
     }
 
-    public static void copyStream(InputStream is, OutputStream os) {
+    /**
+     * Reads the (UTF-8 encoded) {@code inputStream} line-by-line and passes
+     * the lines to the {@code lineProcessor}, like
+     * {@link #readLineWise(InputStream, LineProcessor)}.
+     * <p>
+     * When {@code pipelined} is {@code true} the {@code inputStream} is read
+     * and decoded in a separate thread, ahead of the processing of the
+     * lines, so I/O and processing overlap (see
+     * {@link LineProcessing.ScriptBuilder#pipelineInput()}).
+     *
+     * @deprecated Use {@link org.abego.commons.lineprocessing.LineProcessing} instead.
+     */
+    @Deprecated
+    public static void readLineWise(
+            InputStream inputStream, LineProcessor lineProcessor, boolean pipelined)
+            throws IOException {
+        if (!pipelined) {
+            readLineWise(inputStream, lineProcessor);
+            return;
+        }
+
+        LineProcessing.ScriptBuilder<LineProcessor> builder =
+                LineProcessing.newScriptBuilder(() -> lineProcessor);
+        builder.pipelineInput();
+        builder.onDefault((c, p) -> p.processLine(c.line(), c.lineNumber()));
+        builder.onEndOfText((c, p) -> p.end(c.lineNumber()));
+
+        lineProcessor.start();
         try {
-            byte[] buf = new byte[COPY_STREAM_BUFFER_SIZE];
+            builder.build().process(inputStream);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void copyStream(InputStream is, OutputStream os) {
+        copyStream(is, os, null);
+    }
 
-            int len;
-            while ((len = is.read(buf)) > 0) {
-                os.write(buf, 0, len);
-            }
+    /**
+     * Copy the content of the <code>inputStream</code> to the
+     * <code>outputStream</code> and return the number of bytes copied.
+     * <p>
+     * When both streams are file streams the bytes are transferred directly
+     * by the operating system, where possible. When only one is a file
+     * stream the bytes are copied through a pooled direct buffer, otherwise
+     * through a large heap buffer.
+     * <p>
+     * <code>onBytesCopied</code>, when not <code>null</code>, is called with
+     * the total number of bytes copied so far, each time more bytes were
+     * copied (see also {@link org.abego.commons.progress.Progresses#createByteCountUpdater(org.abego.commons.progress.ProgressWithRange, long)}).
+     * <p>
+     * Neither stream is closed.
+     */
+    public static long copyStream(
+            InputStream inputStream,
+            OutputStream outputStream,
+            @Nullable LongConsumer onBytesCopied) {
+        try {
+            return ChannelTransfer.copy(inputStream, outputStream, onBytesCopied);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Reads the lines of the <code>inputStream</code> (a text encoded with
+     * the {@link Charset} <code>charset</code>) and writes them, sorted, to
+     * the <code>outputStream</code>, using the same charset and terminating
+     * each line with a newline ('\n').
+     * <p>
+     * The input may be larger than the available memory: lines that don't
+     * fit into memory (see {@link SortLinesOptions#getRunSize()}) are sorted
+     * in runs that are written to temporary files and merged afterwards.
+     * <p>
+     * Neither the <code>inputStream</code> nor the
+     * <code>outputStream</code> are closed.
+     */
+    public static void sortLines(
+            InputStream inputStream,
+            Charset charset,
+            OutputStream outputStream,
+            SortLinesOptions options) {
+        ExternalLineSorter.sortLines(
+                new InputStreamReader(inputStream, charset),
+                outputStream, charset, options);
+    }
+
+    /**
+     * As {@link #sortLines(InputStream, Charset, OutputStream, SortLinesOptions)},
+     * for a UTF-8 encoded text and using the default options.
+     */
+    public static void sortLines(InputStream inputStream, OutputStream outputStream) {
+        sortLines(inputStream, StandardCharsets.UTF_8, outputStream,
+                SortLinesOptions.OPTIONS_DEFAULT);
+    }
 
 }
@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+
+/**
+ * Extracts the entries of a jar file below a given prefix, e.g. the
+ * resources of a package.
+ * <p>
+ * The entries of every jar file are indexed once (sorted by name), so
+ * finding the entries with a given prefix does not scan the whole jar
+ * again. The index is rebuilt when the jar file changes. Only the indexes
+ * of the jar files used most recently, and only of local jar files, are
+ * kept.
+ * <p>
+ * The matching entries are extracted in parallel. Entries whose target
+ * file already has the entry's size and CRC are skipped.
+ */
+final class JarResourceExtractor {
+    private static final int CRC_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_JAR_INDEXES = 16;
+    private static final Map<String, JarIndex> JAR_INDEXES =
+            new LinkedHashMap<String, JarIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JarIndex> eldest) {
+                    return size() > MAX_JAR_INDEXES;
+                }
+            };
+
+    private JarResourceExtractor() {
+    }
+
+    /**
+     * Extracts the entries of the jar of {@code jarURLConnection} with names
+     * starting with the connection's entry name to {@code targetDirectory},
+     * dropping the entry name prefix from the file names.
+     */
+    static void extractJarResourcesDeep(
+            JarURLConnection jarURLConnection, File targetDirectory) throws IOException {
+
+        JarFile jarFile = jarURLConnection.getJarFile();
+        @Nullable String prefix = jarURLConnection.getEntryName();
+        String prefixText = prefix != null ? prefix : "";
+        JarIndex index = jarIndex(jarURLConnection.getJarFileURL(), jarFile);
+
+        Set<File> directories = new LinkedHashSet<>();
+        List<EntryInfo> fileEntries = new ArrayList<>();
+        for (EntryInfo entry : index.entriesStartingWith(prefixText)) {
+            File f = new File(targetDirectory, entry.name.substring(prefixText.length()));
+            if (entry.isDirectory) {
+                directories.add(f);
+            } else {
+                directories.add(f.getParentFile());
+                fileEntries.add(entry);
+            }
+        }
+
+        // create every directory once, before extracting the files
+        for (File directory : directories) {
+            FileUtil.ensureDirectoryExists(directory);
+        }
+
+        forEachInParallel(
+                fileEntries,
+                Runtime.getRuntime().availableProcessors(),
+                entry -> extractEntry(jarFile, entry, new File(
+                        targetDirectory, entry.name.substring(prefixText.length()))));
+    }
+
+    private static void extractEntry(JarFile jarFile, EntryInfo entry, File file) {
+        try {
+            if (hasSizeAndCrc(file, entry.size, entry.crc)) {
+                return;
+            }
+            @Nullable JarEntry jarEntry = jarFile.getJarEntry(entry.name);
+            if (jarEntry == null) {
+                throw new IOException("Missing jar entry " + entry.name); //NON-NLS
+            }
+            try (InputStream input = jarFile.getInputStream(jarEntry);
+                 OutputStream output = Files.newOutputStream(file.toPath())) {
+                InputStreamUtil.copyStream(input, output, null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} when the {@code file} exists and has the given
+     * {@code size} and {@code crc}, {@code false} otherwise.
+     * <p>
+     * A negative size or crc means "unknown" and results in {@code false}.
+     */
+    private static boolean hasSizeAndCrc(File file, long size, long crc)
+            throws IOException {
+        if (size < 0 || crc < 0 || !file.isFile() || file.length() != size) {
+            return false;
+        }
+        CRC32 fileCrc = new CRC32();
+        byte[] buffer = new byte[CRC_BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = input.read(buffer)) >= 0) {
+                fileCrc.update(buffer, 0, n);
+            }
+        }
+        return fileCrc.getValue() == crc;
+    }
+
+    private static JarIndex jarIndex(URL jarFileURL, JarFile jarFile) {
+        @Nullable File file = localFileOrNull(jarFileURL);
+        if (file == null) {
+            // without a local file we cannot detect changes of the jar file,
+            // so we don't cache its index.
+            return JarIndex.newJarIndex(jarFile, 0, 0);
+        }
+        long lastModified = file.lastModified();
+        long length = file.length();
+        String key = jarFileURL.toString();
+        @Nullable JarIndex index;
+        synchronized (JAR_INDEXES) {
+            index = JAR_INDEXES.get(key);
+        }
+        if (index == null || !index.isValidFor(lastModified, length)) {
+            // build the index outside the lock, not to block other jars
+            index = JarIndex.newJarIndex(jarFile, lastModified, length);
+            synchronized (JAR_INDEXES) {
+                JAR_INDEXES.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    private static @Nullable File localFileOrNull(URL url) {
+        if (!"file".equals(url.getProtocol())) { //NON-NLS
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class JarIndex {
+        private final NavigableMap<String, EntryInfo> entries;
+        private final long lastModified;
+        private final long length;
+
+        private JarIndex(
+                NavigableMap<String, EntryInfo> entries, long lastModified, long length) {
+            this.entries = entries;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        static JarIndex newJarIndex(JarFile jarFile, long lastModified, long length) {
+            NavigableMap<String, EntryInfo> entries = new TreeMap<>();
+            for (Enumeration<JarEntry> e = jarFile.entries(); e.hasMoreElements(); ) {
+                JarEntry entry = e.nextElement();
+                entries.put(entry.getName(), new EntryInfo(entry));
+            }
+            return new JarIndex(entries, lastModified, length);
+        }
+
+        boolean isValidFor(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+
+        Iterable<EntryInfo> entriesStartingWith(String prefix) {
+            // the entries starting with prefix are a contiguous range in the
+            // sorted map, starting at the prefix
+            List<EntryInfo> result = new ArrayList<>();
+            for (Map.Entry<String, EntryInfo> e : entries.tailMap(prefix, true).entrySet()) {
+                if (!e.getKey().startsWith(prefix)) {
+                    break;
+                }
+                result.add(e.getValue());
+            }
+            return result;
+        }
+    }
+
+    private static final class EntryInfo {
+        private final String name;
+        private final boolean isDirectory;
+        private final long size;
+        private final long crc;
+
+        private EntryInfo(JarEntry entry) {
+            this.name = entry.getName();
+            this.isDirectory = entry.isDirectory();
+            this.size = entry.getSize();
+            this.crc = entry.getCrc();
+        }
+    }
+}
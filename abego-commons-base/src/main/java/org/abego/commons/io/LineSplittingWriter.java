@@ -25,15 +25,11 @@
 package org.abego.commons.io;
 
 
-import org.abego.commons.lang.CharArrayRange;
-import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Iterator;
 
-import static org.abego.commons.lang.CharArrayRange.charArrayRange;
 import static org.abego.commons.lang.CharacterUtil.CARRIAGE_RETURN_CHAR;
 import static org.abego.commons.lang.CharacterUtil.CARRIAGE_RETURN_LINEFEED_STRING;
 import static org.abego.commons.lang.CharacterUtil.CARRIAGE_RETURN_STRING;
@@ -46,9 +42,17 @@ import static org.abego.commons.lang.CharacterUtil.isLineSeparatorChar;
  * by <em>line separators</em>.
  *
  * <p>A line separator may be "\n", "\r" or "\r\n". </p>
+ *
+ * <p>The text written is scanned in place, i.e. writing does not create
+ * any objects.</p>
  */
 public abstract class LineSplittingWriter extends Writer {
 
+    /**
+     * The buffer used to pass a single character to
+     * {@link #processLineContent(char[], int, int)}.
+     */
+    private final char[] singleChar = new char[1];
     private boolean mustProcessCarriageReturn = false;
     private int lineIndex = 0;
 
@@ -79,16 +83,61 @@ public abstract class LineSplittingWriter extends Writer {
     public void write(
             char @Nullable [] characterArray, int startOffset, int length)
             throws IOException {
-        LinesInText linesInText =
-                new LinesInText(characterArray, startOffset, length);
+        if (characterArray == null || length <= 0) {
+            handleUnprocessedCarriageReturn(false);
+            return;
+        }
 
-        handleUnprocessedCarriageReturn(linesInText.isFirstCharNewline());
+        int end = startOffset + length;
+        boolean isFirstCharNewline = characterArray[startOffset] == NEWLINE_CHAR;
+        boolean isLastCharCarriageReturn =
+                characterArray[end - 1] == CARRIAGE_RETURN_CHAR;
+
+        handleUnprocessedCarriageReturn(isFirstCharNewline);
+
+        // A carriage return at the end is processed with the next write,
+        // as it may be the start of a "\r\n" sequence.
+        int endIndex = isLastCharCarriageReturn ? end - 1 : end;
+        int i = isFirstCharNewline ? startOffset + 1 : startOffset;
+        while (i < endIndex) {
+            int lineStart = i;
+            while (i < endIndex && !isLineSeparatorChar(characterArray[i])) {
+                i++;
+            }
+            processLineContent(characterArray, lineStart, i - lineStart);
 
-        for (Line line : linesInText) {
-            handleLine(line);
+            if (i < endIndex) {
+                if (characterArray[i] == NEWLINE_CHAR) {
+                    i++;
+                    handleLineSeparator(NEWLINE_STRING);
+                } else if (i + 1 < endIndex && characterArray[i + 1] == NEWLINE_CHAR) {
+                    i += 2;
+                    handleLineSeparator(CARRIAGE_RETURN_LINEFEED_STRING);
+                } else {
+                    i++;
+                    handleLineSeparator(CARRIAGE_RETURN_STRING);
+                }
+            }
         }
 
-        rememberUnprocessedCarriageReturn(linesInText);
+        mustProcessCarriageReturn = isLastCharCarriageReturn;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        // Same as writing an array with the single character, but without
+        // creating an array.
+        char ch = (char) c;
+        if (ch == NEWLINE_CHAR) {
+            handleUnprocessedCarriageReturn(true);
+        } else if (ch == CARRIAGE_RETURN_CHAR) {
+            handleUnprocessedCarriageReturn(false);
+            mustProcessCarriageReturn = true;
+        } else {
+            handleUnprocessedCarriageReturn(false);
+            singleChar[0] = ch;
+            processLineContent(singleChar, 0, 1);
+        }
     }
 
     @Override
@@ -108,137 +157,8 @@ public abstract class LineSplittingWriter extends Writer {
         mustProcessCarriageReturn = false;
     }
 
-    private void handleLine(Line line) throws IOException {
-        CharArrayRange lineContent = line.getLineContent();
-        processLineContent(lineContent.charArray(),
-                lineContent.startOffset(),
-                lineContent.length());
-
-        if (line.isWithLineSeparator()) {
-            handleLineSeparator(line.getLineSeparator());
-        }
-    }
-
-    private void rememberUnprocessedCarriageReturn(
-            LinesInText linesInText) {
-        mustProcessCarriageReturn = linesInText.isLastCharCarriageReturn();
-    }
-
     private void handleLineSeparator(String lineSeparator) throws IOException {
         processLineSeparator(lineSeparator);
         lineIndex++;
     }
-
-    private static class Line {
-        private final CharArrayRange lineContent;
-        private final String lineSeparator;
-
-        private Line(
-                CharArrayRange lineContent, String lineSeparator) {
-            this.lineContent = lineContent;
-            this.lineSeparator = lineSeparator;
-        }
-
-        CharArrayRange getLineContent() {
-            return lineContent;
-        }
-
-        boolean isWithLineSeparator() {
-            return !lineSeparator.isEmpty();
-        }
-
-        String getLineSeparator() {
-            return lineSeparator;
-        }
-    }
-
-    private static class LinesInText implements Iterable<Line> {
-        private final char[] characterArray;
-        private final int startOffset;
-        private final int length;
-
-        private LinesInText(
-                char @Nullable [] characterArray, int startOffset, int length) {
-            this.characterArray = characterArray != null ? characterArray : new char[0];
-            this.startOffset = characterArray != null ? startOffset : 0;
-            this.length = characterArray != null ? length : 0;
-        }
-
-        boolean isFirstCharNewline() {
-            return length > 0 && characterArray[startOffset] == NEWLINE_CHAR;
-        }
-
-        boolean isLastCharCarriageReturn() {
-            return length > 0 &&
-                    characterArray[startOffset + length - 1] == CARRIAGE_RETURN_CHAR;
-        }
-
-
-        @Override
-        @NonNull
-        public Iterator<Line> iterator() {
-            return new LinesIterator();
-        }
-
-        private class LinesIterator implements Iterator<Line> {
-            private final int endIndex =
-                    startOffset + length - (isLastCharCarriageReturn() ? 1 : 0);
-            private int i = startOffset + (isFirstCharNewline() ? 1 : 0);
-
-            @Override
-            public boolean hasNext() {
-                return i < endIndex;
-            }
-
-            @SuppressWarnings("squid:S2272")
-            // --> "Iterator.next()" methods should throw "NoSuchElementException"
-            //
-            // All callers of `next()` (of this *private* class) are checking
-            // for `hasNext()`. So checking for "hasNext()" again, e.g.
-            // as suggested by SonarQube, would generate dead code, hence
-            // trigger the code coverage tool.
-            //
-            @Override
-            public Line next() {
-
-                CharArrayRange lineContent = scanLineContent();
-                String lineSeparator = scanLineSeparator();
-                return new Line(lineContent, lineSeparator);
-            }
-
-            private CharArrayRange scanLineContent() {
-                int start = i;
-                while (hasNext() && !isLineSeparatorChar(peekNextChar())) {
-                    i++;
-                }
-                return charArrayRange(characterArray, start, i - start);
-            }
-
-            private String scanLineSeparator() {
-                if (consumeChar(NEWLINE_CHAR)) {
-                    return NEWLINE_STRING;
-                }
-
-                if (consumeChar(CARRIAGE_RETURN_CHAR)) {
-                    return consumeChar(NEWLINE_CHAR)
-                            ? CARRIAGE_RETURN_LINEFEED_STRING : CARRIAGE_RETURN_STRING;
-                }
-                return "";
-            }
-
-            private char peekNextChar() {
-                return i < endIndex ? characterArray[i] : 0;
-            }
-
-            private boolean consumeChar(char expectedChar) {
-                char c = peekNextChar();
-                if (c == expectedChar) {
-                    i++;
-                    return true;
-                } else {
-                    return false;
-                }
-            }
-        }
-    }
 }
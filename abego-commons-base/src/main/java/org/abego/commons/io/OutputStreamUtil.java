@@ -29,6 +29,7 @@ import org.abego.commons.lang.exception.MustNotInstantiateException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
+import java.util.zip.Deflater;
 
 import static org.abego.commons.io.PrintWriterUtil.printWriter;
 
@@ -66,5 +67,34 @@ public final class OutputStreamUtil {
         };
     }
 
+    /**
+     * Returns an {@link OutputStream} writing the data gzip compressed to
+     * {@code outputStream}, compressing blocks of data in parallel, using at
+     * most {@code maxConcurrency} threads.
+     * <p>
+     * The blocks are written as separate gzip "members". The result is
+     * readable by the standard gzip tools and by
+     * {@link java.util.zip.GZIPInputStream}.
+     * <p>
+     * Closing the returned stream also closes {@code outputStream}.
+     *
+     * @param compressionLevel the compression level (0-9), see {@link Deflater}
+     */
+    public static OutputStream newParallelGZIPOutputStream(
+            OutputStream outputStream, int maxConcurrency, int compressionLevel) {
+        return ParallelGZIPOutputStream.newParallelGZIPOutputStream(
+                outputStream, maxConcurrency, compressionLevel);
+    }
+
+    /**
+     * As {@link #newParallelGZIPOutputStream(OutputStream, int, int)}, using
+     * all available processors and the default compression level.
+     */
+    public static OutputStream newParallelGZIPOutputStream(OutputStream outputStream) {
+        return newParallelGZIPOutputStream(outputStream,
+                Runtime.getRuntime().availableProcessors(),
+                Deflater.DEFAULT_COMPRESSION);
+    }
+
 
 }
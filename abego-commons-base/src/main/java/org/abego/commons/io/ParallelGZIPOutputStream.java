@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An {@link OutputStream} writing its data gzip compressed, compressing
+ * blocks of data in parallel ("pigz-style").
+ * <p>
+ * Every block is compressed independently, as a complete gzip "member".
+ * The result is a multi-member gzip file, as defined in RFC 1952, that can
+ * be read by the standard gzip tools and by
+ * {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * Because the blocks are compressed independently the compression ratio is
+ * slightly worse than the one of a single-member gzip file.
+ */
+final class ParallelGZIPOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, // magic number
+            Deflater.DEFLATED, // compression method
+            0, // flags
+            0, 0, 0, 0, // modification time (none)
+            0, // extra flags
+            (byte) 0xff // operating system (unknown)
+    };
+
+    private final OutputStream output;
+    private final int compressionLevel;
+    private final int maxPendingBlocks;
+    private final ExecutorService executor;
+    /**
+     * The blocks currently compressed, in the order they must be written.
+     */
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private boolean anyBlockWritten;
+    private boolean closed;
+
+    private ParallelGZIPOutputStream(
+            OutputStream output, int maxConcurrency, int compressionLevel) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must be >= 1, got " + maxConcurrency); //NON-NLS
+        }
+        this.output = output;
+        this.compressionLevel = compressionLevel;
+        // allow some blocks to wait for writing, so compression threads
+        // don't stall
+        this.maxPendingBlocks = 2 * maxConcurrency;
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "ParallelGZIPOutputStream"); //NON-NLS
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static ParallelGZIPOutputStream newParallelGZIPOutputStream(
+            OutputStream output, int maxConcurrency, int compressionLevel) {
+        return new ParallelGZIPOutputStream(output, maxConcurrency, compressionLevel);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == BLOCK_SIZE) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        if (offset < 0 || length < 0 || length > bytes.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (length > 0) {
+            int n = Math.min(length, BLOCK_SIZE - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, n);
+            blockLength += n;
+            offset += n;
+            length -= n;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses and writes the data written so far.
+     * <p>
+     * Every flush ends a gzip member, so frequent flushing makes the
+     * compression less effective.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockLength > 0) {
+            submitBlock();
+        }
+        writePendingBlocks(0);
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (blockLength > 0 || !anyBlockWritten && pendingBlocks.isEmpty()) {
+                // also write an (empty) member when nothing was written, to
+                // create a valid gzip file
+                submitBlock();
+            }
+            writePendingBlocks(0);
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            output.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed"); //NON-NLS
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        pendingBlocks.addLast(executor.submit(() -> compressedMember(data, length)));
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+        writePendingBlocks(maxPendingBlocks - 1);
+    }
+
+    /**
+     * Writes the oldest pending blocks until at most {@code maxRemaining}
+     * blocks are pending, waiting for their compression when necessary.
+     */
+    private void writePendingBlocks(int maxRemaining) throws IOException {
+        while (pendingBlocks.size() > maxRemaining) {
+            Future<byte[]> future = pendingBlocks.removeFirst();
+            try {
+                output.write(future.get());
+                anyBlockWritten = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns the complete gzip member (header, deflated data, trailer)
+     * for the first {@code length} bytes of {@code data}.
+     */
+    private byte[] compressedMember(byte[] data, int length) {
+        ByteArrayOutputStream result =
+                new ByteArrayOutputStream(length / 2 + GZIP_HEADER.length + 8 + 64);
+        result.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+
+        // "nowrap": the raw deflate data, the gzip header and trailer are
+        // written explicitly
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                result.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        writeIntLittleEndian(result, (int) crc.getValue());
+        writeIntLittleEndian(result, length);
+        return result.toByteArray();
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream output, int value) {
+        output.write(value);
+        output.write(value >>> 8);
+        output.write(value >>> 16);
+        output.write(value >>> 24);
+    }
+}
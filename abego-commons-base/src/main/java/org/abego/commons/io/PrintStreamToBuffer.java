@@ -26,42 +26,129 @@ package org.abego.commons.io;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 
+import static org.abego.commons.io.BoundedCaptureOutputStream.newLastBytesCapture;
+import static org.abego.commons.io.BoundedCaptureOutputStream.newLastLinesCapture;
 import static org.abego.commons.io.ByteArrayOutputStreamUtil.textOf;
 
 /**
  * A PrintStream that prints to an internal buffer.
  *
  * <p>Use {@link #text()} to retrieve the printed text.</p>
+ *
+ * <p>By default the buffer keeps all printed text. To capture the output
+ * of long running code without growing memory use a bounded buffer,
+ * keeping only the last bytes
+ * ({@link #newPrintStreamToBufferKeepingLastBytes(int)}) or the last lines
+ * ({@link #newPrintStreamToBufferKeepingLastLines(int)}).</p>
  */
 public final class PrintStreamToBuffer extends PrintStream {
-    private final ByteArrayOutputStream outputStream;
+    public static final int MAX_LINE_BYTES_DEFAULT = 16 * 1024;
+    private final Supplier<String> textSupplier;
 
     private PrintStreamToBuffer(
-            ByteArrayOutputStream outputStream, String encoding)
+            OutputStream outputStream,
+            Supplier<String> textSupplier,
+            String encoding)
             throws IOException {
         super(outputStream, true, encoding);
-        this.outputStream = outputStream;
+        this.textSupplier = textSupplier;
     }
 
-    static PrintStreamToBuffer newPrintStreamToBuffer(
-            ByteArrayOutputStream outputStream, String encoding) {
+    private static PrintStreamToBuffer newPrintStreamToBuffer(
+            OutputStream outputStream,
+            Supplier<String> textSupplier,
+            String encoding) {
         try {
-            return new PrintStreamToBuffer(outputStream, encoding);
+            return new PrintStreamToBuffer(outputStream, textSupplier, encoding);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    static PrintStreamToBuffer newPrintStreamToBuffer(
+            ByteArrayOutputStream outputStream, String encoding) {
+        return newPrintStreamToBuffer(
+                outputStream, () -> textOf(outputStream), encoding);
+    }
+
     public static PrintStreamToBuffer newPrintStreamToBuffer() {
         return newPrintStreamToBuffer(new ByteArrayOutputStream(), StandardCharsets.UTF_8.name());
     }
 
+    /**
+     * Returns a new PrintStreamToBuffer that only keeps the last
+     * {@code maxBytes} bytes of the printed text.
+     *
+     * <p>When text was dropped {@link #text()} starts at the first complete
+     * character kept.</p>
+     */
+    public static PrintStreamToBuffer newPrintStreamToBufferKeepingLastBytes(int maxBytes) {
+        BoundedCaptureOutputStream outputStream = newLastBytesCapture(maxBytes);
+        return newPrintStreamToBuffer(
+                outputStream,
+                () -> textOfUTF8Tail(outputStream.snapshot()),
+                StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Returns a new PrintStreamToBuffer that only keeps the last
+     * {@code maxLines} lines of the printed text, of every line only the
+     * last {@value #MAX_LINE_BYTES_DEFAULT} bytes (including the line feed).
+     *
+     * <p>A last line not (yet) terminated by a {@code '\n'} counts as
+     * a line.</p>
+     */
+    public static PrintStreamToBuffer newPrintStreamToBufferKeepingLastLines(int maxLines) {
+        return newPrintStreamToBufferKeepingLastLines(maxLines, MAX_LINE_BYTES_DEFAULT);
+    }
+
+    /**
+     * Returns a new PrintStreamToBuffer that only keeps the last
+     * {@code maxLines} lines of the printed text, of every line only the
+     * last {@code maxLineBytes} bytes (including the line feed).
+     *
+     * <p>A last line not (yet) terminated by a {@code '\n'} counts as
+     * a line.</p>
+     */
+    public static PrintStreamToBuffer newPrintStreamToBufferKeepingLastLines(
+            int maxLines, int maxLineBytes) {
+        BoundedCaptureOutputStream outputStream =
+                newLastLinesCapture(maxLines, maxLineBytes);
+        return newPrintStreamToBuffer(
+                outputStream,
+                () -> new String(outputStream.snapshot(), StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8.name());
+    }
+
+    private static String textOfUTF8Tail(byte[] bytes) {
+        // skip the continuation bytes of a character cut off at the start
+        int start = 0;
+        while (start < bytes.length && (bytes[start] & 0xC0) == 0x80) {
+            start++;
+        }
+        return new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the text printed to this stream (or the part of it kept by
+     * a bounded buffer).
+     *
+     * <p>The text is a consistent snapshot, i.e. it never contains only
+     * parts of a single {@code print}/{@code println}/{@code write} call,
+     * even when other threads print to this stream concurrently.</p>
+     */
     public String text() {
-        return textOf(outputStream);
+        // PrintStream prints (and flushes) while holding its lock, so all
+        // bytes of a single print reached the buffer when we get the lock.
+        synchronized (this) {
+            return textSupplier.get();
+        }
     }
 
     @Override
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.File;
+import java.util.Comparator;
+
+/**
+ * Options for sorting the lines of a text, as used by
+ * {@link InputStreamUtil#sortLines(java.io.InputStream, java.nio.charset.Charset, java.io.OutputStream, SortLinesOptions)}
+ * and {@link FileUtil#sortLines(File, java.nio.charset.Charset, java.io.OutputStream, SortLinesOptions)}.
+ * <p>
+ * Override the methods to deviate from the defaults.
+ */
+public interface SortLinesOptions {
+    SortLinesOptions OPTIONS_DEFAULT = new SortLinesOptions() {
+    };
+    int RUN_SIZE_DEFAULT = 8 * 1024 * 1024;
+    int MAX_CONCURRENCY_DEFAULT = 4;
+
+    /**
+     * Returns the {@link Comparator} defining the order of the lines.
+     * <p>
+     * Lines the Comparator considers equal keep their original order.
+     */
+    default Comparator<String> getComparator() {
+        return Comparator.naturalOrder();
+    }
+
+    /**
+     * Returns {@code true} when only the first line of lines the
+     * {@link #getComparator() Comparator} considers equal should be written,
+     * {@code false} otherwise.
+     */
+    default boolean getRemoveDuplicates() {
+        return false;
+    }
+
+    /**
+     * Returns the maximal number of characters sorted in memory in one
+     * "run".
+     * <p>
+     * Texts with more characters are sorted in multiple runs, each written
+     * to a temporary file, and the runs are merged afterwards. At most
+     * {@code getMaxConcurrency()} runs are held in memory at the same time.
+     */
+    default int getRunSize() {
+        return RUN_SIZE_DEFAULT;
+    }
+
+    /**
+     * Returns the maximal number of runs sorted at the same time.
+     */
+    default int getMaxConcurrency() {
+        return MAX_CONCURRENCY_DEFAULT;
+    }
+
+    /**
+     * Returns the directory to create the temporary files in, or
+     * {@code null} to use a new directory as created by
+     * {@link FileUtil#tempDirectoryForRun()}.
+     */
+    default @Nullable File getTempDirectory() {
+        return null;
+    }
+}
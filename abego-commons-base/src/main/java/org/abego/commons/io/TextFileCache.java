@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A bounded cache for the texts of files, as created by
+ * {@link FileUtil#newTextFileCache(long)}.
+ * <p>
+ * A cached text is returned as long as the size and last modified time of
+ * its file are unchanged, otherwise the file is read again. When the total
+ * length of the cached texts exceeds the cache's capacity the least
+ * recently used texts are evicted.
+ * <p>
+ * A file read shortly after its last modification (within the file
+ * system's time granularity) may change again without changing its size
+ * and last modified time. Such a file is read again on every access, until
+ * its last modification is old enough.
+ * <p>
+ * A TextFileCache is thread-safe.
+ */
+public interface TextFileCache {
+
+    /**
+     * Return the text of <code>file</code> (a text file encoded with the
+     * {@link Charset} <code>charset</code>), from the cache when the file
+     * did not change since it was read the last time.
+     */
+    String textOf(File file, Charset charset);
+
+    /**
+     * Return the text of <code>file</code>, a UTF-8 encoded text file, from
+     * the cache when the file did not change since it was read the last
+     * time.
+     */
+    default String textOf(File file) {
+        return textOf(file, UTF_8);
+    }
+
+    /**
+     * Removes the texts of <code>file</code> from the cache.
+     */
+    void invalidate(File file);
+
+    /**
+     * Removes all texts from the cache.
+     */
+    void clear();
+
+    /**
+     * Returns the maximal total number of characters of the texts in the
+     * cache.
+     */
+    long getCapacity();
+
+    /**
+     * Returns the total number of characters of the texts in the cache.
+     */
+    long getWeight();
+
+    /**
+     * Returns the number of {@code textOf} calls that returned a cached
+     * text.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of {@code textOf} calls that read the file.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of texts removed from the cache to stay within its
+     * capacity.
+     */
+    long getEvictionCount();
+}
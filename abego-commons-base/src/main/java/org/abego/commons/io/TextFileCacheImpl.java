@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+final class TextFileCacheImpl implements TextFileCache {
+    private final long capacity;
+    /**
+     * The cached entries, in "least recently used first" order.
+     */
+    private final LinkedHashMap<Key, Entry> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private TextFileCacheImpl(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "capacity must not be negative, got " + capacity); //NON-NLS
+        }
+        this.capacity = capacity;
+    }
+
+    static TextFileCache newTextFileCache(long capacity) {
+        return new TextFileCacheImpl(capacity);
+    }
+
+    @Override
+    public String textOf(File file, Charset charset) {
+        Path path = file.toPath().toAbsolutePath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            invalidate(file);
+            throw new UncheckedIOException(e);
+        }
+
+        long readTime = System.currentTimeMillis();
+        Key key = new Key(path, charset);
+        synchronized (this) {
+            @Nullable Entry entry = entries.get(key);
+            if (entry != null && entry.isValidFor(attributes)) {
+                hitCount++;
+                return entry.text;
+            }
+            missCount++;
+        }
+
+        // read the file outside the lock, so other files can be accessed
+        // in the meantime.
+        String text = FileUtil.textOf(file, charset);
+        put(key, new Entry(attributes.size(), attributes.lastModifiedTime(),
+                isRacy(attributes.lastModifiedTime(), readTime), text));
+        return text;
+    }
+
+    @Override
+    public synchronized void invalidate(File file) {
+        Path path = file.toPath().toAbsolutePath();
+        Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Key, Entry> e = iter.next();
+            if (e.getKey().path.equals(path)) {
+                weight -= e.getValue().text.length();
+                iter.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    @Override
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns {@code true} when a file with the given {@code lastModified}
+     * time, read at {@code readTime}, may have been modified again without
+     * changing its size and last modified time.
+     */
+    private static boolean isRacy(FileTime lastModified, long readTime) {
+        return lastModified.toMillis()
+                + BuildCache.MODIFICATION_TIME_GRANULARITY_MILLIS > readTime;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        @Nullable Entry oldEntry = entries.remove(key);
+        if (oldEntry != null) {
+            weight -= oldEntry.text.length();
+        }
+        long entryWeight = entry.text.length();
+        if (entryWeight > capacity) {
+            // would evict everything else and still not fit: don't cache.
+            return;
+        }
+        entries.put(key, entry);
+        weight += entryWeight;
+
+        Iterator<Entry> iter = entries.values().iterator();
+        while (weight > capacity && iter.hasNext()) {
+            Entry leastRecentlyUsed = iter.next();
+            weight -= leastRecentlyUsed.text.length();
+            iter.remove();
+            evictionCount++;
+        }
+    }
+
+    private static final class Key {
+        private final Path path;
+        private final Charset charset;
+
+        private Key(Path path, Charset charset) {
+            this.path = path;
+            this.charset = charset;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return path.equals(key.path) && charset.equals(key.charset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, charset);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final FileTime lastModified;
+        /**
+         * {@code true} when the file was read so shortly after its last
+         * modification that it may have changed without changing its size
+         * or last modified time, i.e. the text must be read again.
+         */
+        private final boolean racy;
+        private final String text;
+
+        private Entry(long size, FileTime lastModified, boolean racy, String text) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.racy = racy;
+            this.text = text;
+        }
+
+        private boolean isValidFor(BasicFileAttributes attributes) {
+            return !racy &&
+                    size == attributes.size() &&
+                    lastModified.equals(attributes.lastModifiedTime());
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.abego.commons.io.FileUtil.ensureDirectoryExists;
+
+/**
+ * A writer that splits its text into multiple files, as specified by
+ * <em>file header lines</em> in the text.
+ * <p>
+ * A file header line (e.g. {@code ">>> out/foo.txt"}) may occur anywhere
+ * in the text and switches the target file: all following lines, up to
+ * the next file header line, are written to the file specified in the
+ * header line. The file header lines themselves are not written.
+ * <p>
+ * When a file is specified more than once, the later lines are appended
+ * to the ones written before.
+ * <p>
+ * At most {@code maxOpenFiles} files are kept open at the same time. When
+ * more files are needed, the least recently used file is flushed and
+ * closed in the background.
+ * <p>
+ * (See also {@link ToFileInHeaderLineWriter} for the special case of a
+ * single file specified in the first line.)
+ */
+public final class ToFilesInHeaderLinesWriter extends LineSplittingWriter {
+    public static final int MAX_OPEN_FILES_DEFAULT = 16;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final Function<String, @Nullable String> fileHeaderParser;
+    private final Charset charset;
+    private final int maxOpenFiles;
+    private final StringBuilder currentLine = new StringBuilder();
+    /**
+     * The open writers, the least recently used first.
+     */
+    private final LinkedHashMap<File, Writer> openWriters =
+            new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The files written to so far. A file is truncated when opened the
+     * first time and appended to when opened again.
+     */
+    private final Set<File> knownFiles = new HashSet<>();
+    private final Map<File, Future<?>> pendingCloses = new HashMap<>();
+    private final ExecutorService closeExecutor;
+    @Nullable
+    private File currentFile;
+    private boolean closed;
+
+    private ToFilesInHeaderLinesWriter(
+            Function<String, @Nullable String> fileHeaderParser,
+            Charset charset,
+            int maxOpenFiles) {
+        if (maxOpenFiles < 1) {
+            throw new IllegalArgumentException(
+                    "maxOpenFiles must be >= 1, got " + maxOpenFiles); //NON-NLS
+        }
+        this.fileHeaderParser = fileHeaderParser;
+        this.charset = charset;
+        this.maxOpenFiles = maxOpenFiles;
+        this.closeExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ToFilesInHeaderLinesWriter"); //NON-NLS
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns a new writer, using the {@code fileHeaderParser} to recognize
+     * the file header lines.
+     * <p>
+     * For every (complete) line the {@code fileHeaderParser} returns the
+     * pathname of the file specified by the line, when the line is a file
+     * header line, or {@code null} otherwise.
+     */
+    public static ToFilesInHeaderLinesWriter toFilesInHeaderLinesWriter(
+            Function<String, @Nullable String> fileHeaderParser,
+            Charset charset,
+            int maxOpenFiles) {
+        return new ToFilesInHeaderLinesWriter(fileHeaderParser, charset, maxOpenFiles);
+    }
+
+    /**
+     * Returns a new writer, treating lines starting with
+     * {@code fileHeaderPrefix} as file header lines, with the pathname of
+     * the file following the prefix.
+     */
+    public static ToFilesInHeaderLinesWriter toFilesInHeaderLinesWriter(
+            String fileHeaderPrefix, Charset charset) {
+        return toFilesInHeaderLinesWriter(
+                line -> line.startsWith(fileHeaderPrefix)
+                        ? line.substring(fileHeaderPrefix.length())
+                        : null,
+                charset,
+                MAX_OPEN_FILES_DEFAULT);
+    }
+
+    /**
+     * As {@link #toFilesInHeaderLinesWriter(String, Charset)}, writing the
+     * files in UTF-8.
+     */
+    public static ToFilesInHeaderLinesWriter toFilesInHeaderLinesWriter(
+            String fileHeaderPrefix) {
+        return toFilesInHeaderLinesWriter(fileHeaderPrefix, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void processLineContent(
+            char[] characterArray, int startOffset, int length) {
+        // we can only decide if the line is a file header line when the
+        // line is complete
+        currentLine.append(characterArray, startOffset, length);
+    }
+
+    @Override
+    protected void processLineSeparator(String lineSeparator) throws IOException {
+        processLine(lineSeparator);
+    }
+
+    /**
+     * Flushes the open files and waits until the files closed in the
+     * background are written completely.
+     */
+    @Override
+    public void flush() throws IOException {
+        for (Writer w : openWriters.values()) {
+            w.flush();
+        }
+        awaitPendingCloses();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            super.close();
+            if (currentLine.length() > 0) {
+                processLine("");
+            }
+        } finally {
+            closed = true;
+            try {
+                for (Map.Entry<File, Writer> e : openWriters.entrySet()) {
+                    closeInBackground(e.getKey(), e.getValue());
+                }
+                openWriters.clear();
+                awaitPendingCloses();
+            } finally {
+                closeExecutor.shutdown();
+            }
+        }
+        if (knownFiles.isEmpty()) {
+            throw new IOException("No file header line found in output.");  // NON-NLS
+        }
+    }
+
+    private void processLine(String lineSeparator) throws IOException {
+        String line = currentLine.toString();
+        currentLine.setLength(0);
+
+        @Nullable String pathname = fileHeaderParser.apply(line);
+        if (pathname != null) {
+            // normalize the path, so different pathnames of the same file
+            // (like "a/../b.txt" and "b.txt") use the same writer
+            currentFile = new File(pathname).toPath().toAbsolutePath().normalize().toFile();
+            // make sure the file exists, even when no lines are written to it
+            writer(currentFile);
+            return;
+        }
+
+        @Nullable File file = currentFile;
+        if (file == null) {
+            if (line.isEmpty()) {
+                // ignore empty lines before the first file header line
+                return;
+            }
+            throw new IOException(
+                    "Text before first file header line: " + line);  // NON-NLS
+        }
+        Writer w = writer(file);
+        w.write(line);
+        w.write(lineSeparator);
+    }
+
+    private Writer writer(File file) throws IOException {
+        @Nullable Writer w = openWriters.get(file);
+        if (w != null) {
+            return w;
+        }
+
+        if (openWriters.size() >= maxOpenFiles) {
+            Iterator<Map.Entry<File, Writer>> iter = openWriters.entrySet().iterator();
+            Map.Entry<File, Writer> leastRecentlyUsed = iter.next();
+            iter.remove();
+            closeInBackground(leastRecentlyUsed.getKey(), leastRecentlyUsed.getValue());
+        }
+
+        // when the file was closed in the background, make sure all its
+        // text is written before we append to it.
+        awaitPendingClose(file);
+
+        boolean append = !knownFiles.add(file);
+        ensureDirectoryExists(file.getParentFile());
+        w = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file, append), charset),
+                FILE_BUFFER_SIZE);
+        openWriters.put(file, w);
+        return w;
+    }
+
+    private void closeInBackground(File file, Writer writer) {
+        pendingCloses.put(file, closeExecutor.submit(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    private void awaitPendingClose(File file) throws IOException {
+        @Nullable Future<?> pendingClose = pendingCloses.remove(file);
+        if (pendingClose != null) {
+            await(pendingClose);
+        }
+    }
+
+    private void awaitPendingCloses() throws IOException {
+        List<Future<?>> futures = new ArrayList<>(pendingCloses.values());
+        pendingCloses.clear();
+        @Nullable IOException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                await(future);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+}
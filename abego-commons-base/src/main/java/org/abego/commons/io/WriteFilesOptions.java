@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Options for writing the texts of many files, as used by
+ * {@link FileUtil#writeTexts(java.util.Map, WriteFilesOptions)}.
+ * <p>
+ * Override the methods to deviate from the defaults.
+ */
+public interface WriteFilesOptions {
+    WriteFilesOptions OPTIONS_DEFAULT = new WriteFilesOptions() {
+    };
+    int MAX_CONCURRENCY_DEFAULT = 4;
+
+    /**
+     * Returns the {@link Charset} used to encode the texts.
+     */
+    default Charset getCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Returns {@code true} when a file that already has the content to
+     * write should not be written again (keeping its last modified time),
+     * {@code false} otherwise.
+     */
+    default boolean getSkipUnchangedFiles() {
+        return false;
+    }
+
+    /**
+     * Returns the maximal number of files written at the same time.
+     */
+    default int getMaxConcurrency() {
+        return MAX_CONCURRENCY_DEFAULT;
+    }
+}
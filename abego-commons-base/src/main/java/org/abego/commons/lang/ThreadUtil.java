@@ -25,6 +25,18 @@
 package org.abego.commons.lang;
 
 import org.abego.commons.lang.exception.MustNotInstantiateException;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.abego.commons.lang.exception.UncheckedException.newUncheckedException;
 
 public final class ThreadUtil {
 
@@ -72,4 +84,111 @@ public final class ThreadUtil {
         return thread;
     }
 
+    /**
+     * Run the {@code action} for every item of {@code items}, running
+     * at most {@code maxConcurrency} actions at the same time, using the
+     * given {@code executor}.
+     *
+     * <p>The items are taken from {@code items} by the calling thread, and
+     * only when a new action can be started ("back-pressure"). I.e. when
+     * {@code items} is lazy (e.g. reading from a file) no more than
+     * {@code maxConcurrency} items are "in flight" at any time.</p>
+     *
+     * <p>The method returns when all actions are done. When an action
+     * throws an exception no further actions are started and the (first)
+     * exception is rethrown after the running actions are done.</p>
+     *
+     * @throws IllegalArgumentException if {@code maxConcurrency} is less than 1
+     */
+    public static <T> void forEachInParallel(
+            Iterable<T> items,
+            int maxConcurrency,
+            Executor executor,
+            Consumer<? super T> action) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must be >= 1, got " + maxConcurrency); //NON-NLS
+        }
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+        try {
+            Iterator<T> iter = items.iterator();
+            while (true) {
+                // take the next item only when its action can be started
+                permits.acquire();
+                if (failure.get() != null || !iter.hasNext()) {
+                    permits.release();
+                    break;
+                }
+                T item = iter.next();
+                executeWithPermit(executor, permits, failure, () -> action.accept(item));
+            }
+            // all permits are available again when all actions are done
+            permits.acquire(maxConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw newUncheckedException(e);
+        }
+
+        rethrowIfNotNull(failure.get());
+    }
+
+    /**
+     * Run the {@code action} for every item of {@code items}, running
+     * at most {@code maxConcurrency} actions at the same time.
+     *
+     * <p>The actions run in threads exclusively created for this call.
+     * See {@link #forEachInParallel(Iterable, int, Executor, Consumer)} for
+     * details.</p>
+     */
+    public static <T> void forEachInParallel(
+            Iterable<T> items, int maxConcurrency, Consumer<? super T> action) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency must be >= 1, got " + maxConcurrency); //NON-NLS
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency);
+        try {
+            forEachInParallel(items, maxConcurrency, executor, action);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void executeWithPermit(
+            Executor executor,
+            Semaphore permits,
+            AtomicReference<@Nullable Throwable> failure,
+            Runnable runnable) {
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failure.compareAndSet(null, e);
+            permits.release();
+        }
+    }
+
+    private static void rethrowIfNotNull(@Nullable Throwable throwable) {
+        if (throwable == null) {
+            return;
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        }
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        throw newUncheckedException(throwable);
+    }
+
 }
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+import static org.abego.commons.lineprocessing.FileChunk.canSplitAtLineFeeds;
+import static org.abego.commons.lineprocessing.LineProcessing.newCheckpoint;
+import static org.abego.commons.lineprocessing.MappedLineSource.newMappedLineSource;
+import static org.abego.commons.lineprocessing.PipelinedLineSource.newPipelinedLineSource;
+import static org.abego.commons.lineprocessing.ReaderLineSource.newReaderLineSource;
+
+/**
+ * Base class of the {@link LineProcessing.Script} implementations, processing
+ * the lines of the various kinds of input with {@link ScriptRun}s.
+ */
+abstract class AbstractScript implements LineProcessing.Script {
+
+    /**
+     * Returns a new {@link ScriptRun}, i.e. a new processing of lines with
+     * its own state, for the lines of the given {@code file}, or of a text
+     * not coming from a file when {@code file} is {@code null}.
+     */
+    abstract ScriptRun newRun(@Nullable Path file);
+
+    ScriptRun newRun() {
+        return newRun(null);
+    }
+
+    /**
+     * Returns {@code true} when the input of a (sequential) {@code process}
+     * call is read and decoded in a separate thread, ahead of the processing
+     * of the lines.
+     */
+    boolean isInputPipelined() {
+        return false;
+    }
+
+    @Override
+    public void process(String text) {
+        process(newReaderLineSource(new StringReader(text)));
+    }
+
+    @Override
+    public void process(BufferedReader reader) {
+        process(newReaderLineSource(reader));
+    }
+
+    private void process(LineSource lineSource) {
+        ScriptRun run = newRun();
+        try {
+            processLines(run, lineSource);
+            run.processEndOfText();
+        } finally {
+            run.close();
+        }
+    }
+
+    /**
+     * Processes the lines of the {@code lineSource} with the {@code run},
+     * without executing the `end of text` action.
+     */
+    void processLines(ScriptRun run, LineSource lineSource) {
+        try {
+            if (isInputPipelined()) {
+                try (PipelinedLineSource pipelinedLineSource =
+                             newPipelinedLineSource(lineSource)) {
+                    run.processLines(pipelinedLineSource, 0);
+                }
+            } else {
+                run.processLines(lineSource, 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Processes the lines of the {@code file} with the {@code run},
+     * without executing the `end of text` action.
+     */
+    void processLines(ScriptRun run, Path file, Charset charset) {
+        if (!canSplitAtLineFeeds(charset)) {
+            try (Reader reader = new InputStreamReader(
+                    Files.newInputStream(file), charset)) {
+                processLines(run, newReaderLineSource(reader));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            processLines(run, newMappedLineSource(channel, 0, channel.size(), charset));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void process(InputStream inputStream, Charset charset) {
+        try (Reader reader = new InputStreamReader(inputStream, charset)) {
+            process(newReaderLineSource(reader));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void process(InputStream inputStream) {
+        process(inputStream, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void process(Path file, Charset charset) {
+        ScriptRun run = newRun(file);
+        try {
+            processLines(run, file, charset);
+            run.processEndOfText();
+        } finally {
+            run.close();
+        }
+    }
+
+    @Override
+    public void process(Path file) {
+        process(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void processInParallel(Path file) {
+        processInParallel(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void processFiles(
+            Path directory,
+            Predicate<Path> selector,
+            Charset charset,
+            int maxConcurrency) {
+        processFiles(selectedFiles(directory, selector), charset, maxConcurrency);
+    }
+
+    @Override
+    public void processFiles(Path directory, Predicate<Path> selector) {
+        processFiles(directory, selector, StandardCharsets.UTF_8,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Processes the {@code files} in parallel, every file like
+     * {@link #process(Path, Charset)} does.
+     * <p>
+     * Subclasses may override this method, e.g. to merge the states of the
+     * files.
+     */
+    void processFiles(List<Path> files, Charset charset, int maxConcurrency) {
+        forEachInParallel(largestFirst(files), maxConcurrency, i ->
+                process(files.get(i), charset));
+    }
+
+    /**
+     * Returns the indices of the {@code files}, ordered by the size of the
+     * files, the largest file first.
+     * <p>
+     * Starting the large files first avoids a single large file, started
+     * late, to keep one thread busy while all other threads are already
+     * done.
+     */
+    static List<Integer> largestFirst(List<Path> files) {
+        long[] sizes = new long[files.size()];
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            sizes[i] = sizeOrZero(files.get(i));
+            result.add(i);
+        }
+        result.sort(Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+        return result;
+    }
+
+    private static long sizeOrZero(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            // the file will fail again when processed, reporting the problem
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the regular files in the {@code directory} and deeper that
+     * are selected by the {@code selector}, ordered by their paths.
+     */
+    private static List<Path> selectedFiles(Path directory, Predicate<Path> selector) {
+        List<Path> result = new ArrayList<>();
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && selector.test(file)) {
+                        result.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Override
+    public LineProcessing.Follower follow(
+            Path file, Charset charset, LineProcessing.Checkpoint checkpoint) {
+        if (!canSplitAtLineFeeds(charset)) {
+            throw new IllegalArgumentException(
+                    "Charset not supported when following a file: " + charset); //NON-NLS
+        }
+        return new FollowerImpl(newRun(file), file, charset, checkpoint);
+    }
+
+    @Override
+    public LineProcessing.Follower follow(Path file, Charset charset) {
+        return follow(file, charset, newCheckpoint(0, 0));
+    }
+
+    @Override
+    public LineProcessing.Follower follow(Path file) {
+        return follow(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.abego.commons.lineprocessing.StatisticsImpl.newCombinedStatistics;
+
+/**
+ * A Script processing every line with multiple Scripts, in a single pass
+ * over the input.
+ */
+final class CombinedScript extends AbstractScript {
+    private final List<AbstractScript> scripts;
+    private final boolean concurrent;
+
+    private CombinedScript(List<AbstractScript> scripts, boolean concurrent) {
+        this.scripts = scripts;
+        this.concurrent = concurrent;
+    }
+
+    static CombinedScript newCombinedScript(
+            LineProcessing.Script[] scripts, boolean concurrent) {
+        List<AbstractScript> list = new ArrayList<>();
+        for (LineProcessing.Script script : scripts) {
+            if (!(script instanceof AbstractScript)) {
+                throw new IllegalArgumentException(
+                        "Script not created by LineProcessing: " + script); //NON-NLS
+            }
+            list.add((AbstractScript) script);
+        }
+        return new CombinedScript(Collections.unmodifiableList(list), concurrent);
+    }
+
+    @Override
+    ScriptRun newRun(@Nullable Path file) {
+        List<ScriptRun> runs = new ArrayList<>();
+        for (AbstractScript script : scripts) {
+            runs.add(script.newRun(file));
+        }
+        return concurrent
+                ? new ConcurrentScriptRun(runs)
+                : new SequentialRun(runs);
+    }
+
+    @Override
+    public void processInParallel(Path file, Charset charset) {
+        // the combined scripts share a single pass over the input
+        process(file, charset);
+    }
+
+    @Override
+    public LineProcessing.Statistics statistics() {
+        List<LineProcessing.Statistics> statistics = new ArrayList<>();
+        for (AbstractScript script : scripts) {
+            statistics.add(script.statistics());
+        }
+        return newCombinedStatistics(statistics);
+    }
+
+    /**
+     * Passes every line to all runs, in the calling thread.
+     */
+    private static final class SequentialRun implements ScriptRun {
+        private final List<ScriptRun> runs;
+
+        private SequentialRun(List<ScriptRun> runs) {
+            this.runs = runs;
+        }
+
+        @Override
+        public void processLine(CharSequence line, int lineNumber) {
+            //noinspection ForLoopReplaceableByForEach
+            for (int i = 0; i < runs.size(); i++) {
+                runs.get(i).processLine(line, lineNumber);
+            }
+        }
+
+        @Override
+        public void processEndOfText() {
+            for (ScriptRun run : runs) {
+                run.processEndOfText();
+            }
+        }
+
+        @Override
+        public void flush() {
+            for (ScriptRun run : runs) {
+                run.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            for (ScriptRun run : runs) {
+                run.close();
+            }
+        }
+    }
+}
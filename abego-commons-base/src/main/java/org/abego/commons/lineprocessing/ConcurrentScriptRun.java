@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.abego.commons.lang.exception.UncheckedException.newUncheckedException;
+
+/**
+ * Passes every line to multiple {@link ScriptRun}s, each running in its own
+ * worker thread.
+ * <p>
+ * The lines are handed over to the workers in batches, through bounded
+ * queues. So when a worker is slower than the reading of the input the
+ * reading blocks, rather than filling the memory with lines.
+ */
+final class ConcurrentScriptRun implements ScriptRun {
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final List<Worker> workers = new ArrayList<>();
+    private Message batch = newBatch();
+
+    ConcurrentScriptRun(List<ScriptRun> runs) {
+        for (ScriptRun run : runs) {
+            Worker worker = new Worker(run);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "LineProcessing worker"); //NON-NLS
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void processLine(CharSequence line, int lineNumber) {
+        // the line is only valid during this call, so pass a copy
+        batch.add(line.toString(), lineNumber);
+        if (batch.isFull()) {
+            sendBatch();
+        }
+    }
+
+    @Override
+    public void processEndOfText() {
+        sendBatch();
+        sendAndAwait(Message.Kind.END_OF_TEXT);
+    }
+
+    @Override
+    public void flush() {
+        sendBatch();
+        sendAndAwait(Message.Kind.FLUSH);
+    }
+
+    @Override
+    public void close() {
+        send(new Message(Message.Kind.CLOSE, null));
+    }
+
+    private void sendBatch() {
+        rethrowFailure();
+        if (batch.size > 0) {
+            send(batch);
+            batch = newBatch();
+        }
+    }
+
+    private void sendAndAwait(Message.Kind kind) {
+        CountDownLatch done = new CountDownLatch(workers.size());
+        send(new Message(kind, done));
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw newUncheckedException(e);
+        }
+        rethrowFailure();
+    }
+
+    private void send(Message message) {
+        try {
+            for (Worker worker : workers) {
+                worker.queue.put(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw newUncheckedException(e);
+        }
+    }
+
+    private void rethrowFailure() {
+        for (Worker worker : workers) {
+            Throwable failure = worker.failure;
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw newUncheckedException(failure);
+            }
+        }
+    }
+
+    private static Message newBatch() {
+        return new Message(Message.Kind.LINES, null);
+    }
+
+    private static final class Message {
+        enum Kind {LINES, FLUSH, END_OF_TEXT, CLOSE}
+
+        private final Kind kind;
+        private final @Nullable CountDownLatch done;
+        private final String[] lines;
+        private final int[] lineNumbers;
+        private int size = 0;
+
+        private Message(Kind kind, @Nullable CountDownLatch done) {
+            this.kind = kind;
+            this.done = done;
+            int capacity = kind == Kind.LINES ? BATCH_SIZE : 0;
+            this.lines = new String[capacity];
+            this.lineNumbers = new int[capacity];
+        }
+
+        private void add(String line, int lineNumber) {
+            lines[size] = line;
+            lineNumbers[size] = lineNumber;
+            size++;
+        }
+
+        private boolean isFull() {
+            return size == lines.length;
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        private final ScriptRun run;
+        private final BlockingQueue<Message> queue =
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile @Nullable Throwable failure;
+
+        private Worker(ScriptRun run) {
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Message message;
+                try {
+                    message = queue.take();
+                } catch (InterruptedException e) {
+                    failure = e;
+                    return;
+                }
+                // after a failure keep on taking messages, so the sender
+                // never blocks, but ignore their content
+                if (failure == null) {
+                    try {
+                        handle(message);
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                }
+                CountDownLatch done = message.done;
+                if (done != null) {
+                    done.countDown();
+                }
+                if (message.kind == Message.Kind.CLOSE) {
+                    run.close();
+                    return;
+                }
+            }
+        }
+
+        private void handle(Message message) {
+            switch (message.kind) {
+                case LINES:
+                    for (int i = 0; i < message.size; i++) {
+                        run.processLine(message.lines[i], message.lineNumbers[i]);
+                    }
+                    break;
+                case FLUSH:
+                    run.flush();
+                    break;
+                case END_OF_TEXT:
+                    run.processEndOfText();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -26,20 +26,44 @@ package org.abego.commons.lineprocessing;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 class ContextImpl implements LineProcessing.Context {
     private final LineProcessing.Context readonlyContext =
             new ReadOnlyContext(this);
-    private String line = "";
+    private CharSequence lineChars = "";
+    private @Nullable String line = "";
     private int lineNumber;
     private @Nullable Matcher m;
     private boolean endOfTextReached = false;
     private boolean checkMoreRules = false;
+    private @Nullable Matcher[] matchers = new Matcher[0];
+    private @Nullable StatisticsImpl statistics;
+    private @Nullable Path file;
 
     @Override
     public String line() {
-        return line;
+        // The String is only created when needed
+        String result = line;
+        if (result == null) {
+            result = lineChars.toString();
+            line = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the line currently processed, without converting it to a
+     * String.
+     * <p>
+     * The content of the returned {@link CharSequence} may change when the
+     * next line is processed.
+     */
+    public CharSequence lineChars() {
+        return lineChars;
     }
 
     @Override
@@ -47,6 +71,15 @@ class ContextImpl implements LineProcessing.Context {
         return lineNumber;
     }
 
+    @Override
+    public @Nullable Path file() {
+        return file;
+    }
+
+    public void setFile(@Nullable Path file) {
+        this.file = file;
+    }
+
     @Override
     public boolean isPatternMatchingRule() {
         return m != null;
@@ -65,8 +98,9 @@ class ContextImpl implements LineProcessing.Context {
         setCheckMoreRules(true);
     }
 
-    public void setLine(String line) {
-        this.line = line;
+    public void setLine(CharSequence line) {
+        this.lineChars = line;
+        this.line = line instanceof String ? (String) line : null;
     }
 
     public void setLineNumber(int lineNumber) {
@@ -77,6 +111,26 @@ class ContextImpl implements LineProcessing.Context {
         this.m = m;
     }
 
+    /**
+     * Returns the {@link Matcher} in the given {@code slot}, reset to match
+     * the {@code pattern} against the current line.
+     * <p>
+     * The Matcher is created on first use and reused for later lines.
+     */
+    public Matcher matcher(int slot, Pattern pattern) {
+        if (slot >= matchers.length) {
+            matchers = Arrays.copyOf(matchers, slot + 1);
+        }
+        Matcher result = matchers[slot];
+        if (result == null) {
+            result = pattern.matcher(lineChars);
+            matchers[slot] = result;
+        } else {
+            result.reset(lineChars);
+        }
+        return result;
+    }
+
     public boolean getCheckMoreRules() {
         return checkMoreRules;
     }
@@ -93,6 +147,18 @@ class ContextImpl implements LineProcessing.Context {
         this.endOfTextReached = endOfTextReached;
     }
 
+    /**
+     * Returns the statistics recorder of the current processing run, or
+     * {@code null} when no statistics are collected.
+     */
+    public @Nullable StatisticsImpl getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(@Nullable StatisticsImpl statistics) {
+        this.statistics = statistics;
+    }
+
     public LineProcessing.Context asReadOnlyContext() {
         return readonlyContext;
     }
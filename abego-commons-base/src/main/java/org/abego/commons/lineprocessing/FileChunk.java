@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A range of bytes of a file, starting at the beginning of a line and
+ * ending after a line feed ('\n') or at the end of the file.
+ * <p>
+ * Splitting a file into chunks at the byte level is only correct when the
+ * file's {@link Charset} encodes the line separators as single bytes that
+ * never occur in the encoding of other characters (see
+ * {@link #canSplitAtLineFeeds(Charset)}).
+ */
+final class FileChunk {
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final long start;
+    private final long end;
+
+    private FileChunk(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Returns {@code true} when a text encoded with the {@code charset} can
+     * be split into lines at the byte level, i.e. when line feed and
+     * carriage return are encoded as the ASCII bytes and these bytes are not
+     * used in the encoding of any other character.
+     * <p>
+     * This is the case for UTF-8 and for single-byte charsets like
+     * ISO-8859-1 that are compatible with ASCII regarding line separators.
+     */
+    static boolean canSplitAtLineFeeds(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) ||
+                charset.equals(StandardCharsets.US_ASCII)) {
+            return true;
+        }
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        byte[] separators = "\r\n".getBytes(charset);
+        return separators.length == 2 && separators[0] == CR && separators[1] == LF;
+    }
+
+    /**
+     * Splits the {@code channel}'s content into chunks of about
+     * {@code chunkSize} bytes, each ending after a line feed or at the end
+     * of the file.
+     */
+    static List<FileChunk> splitIntoChunks(FileChannel channel, long chunkSize)
+            throws IOException {
+        long size = channel.size();
+        List<FileChunk> result = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize >= size
+                    ? size
+                    : positionAfterLineFeed(channel, start + chunkSize - 1, size);
+            result.add(new FileChunk(start, end));
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position after the first line feed at or after
+     * {@code position}, or {@code size} when there is no such line feed.
+     */
+    private static long positionAfterLineFeed(
+            FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long pos = position;
+        while (pos < size) {
+            buffer.clear();
+            int n = channel.read(buffer, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == LF) {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the position after the last line feed in the range from
+     * {@code start} (inclusive) to {@code end} (exclusive), or {@code start}
+     * when the range contains no line feed.
+     */
+    static long positionAfterLastLineFeed(
+            FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long blockEnd = end;
+        while (blockEnd > start) {
+            long blockStart = Math.max(start, blockEnd - SCAN_BUFFER_SIZE);
+            buffer.clear();
+            buffer.limit((int) (blockEnd - blockStart));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, blockStart + buffer.position()) <= 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == LF) {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return start;
+    }
+
+    long start() {
+        return start;
+    }
+
+    long end() {
+        return end;
+    }
+
+    long size() {
+        return end - start;
+    }
+
+    /**
+     * Returns the content of this chunk, memory-mapped from the
+     * {@code channel}.
+     */
+    MappedByteBuffer map(FileChannel channel) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, size());
+    }
+
+    /**
+     * Returns the number of lines in this chunk (as defined by
+     * {@link LineSource}).
+     */
+    int lineCount(FileChannel channel) throws IOException {
+        ByteBuffer bytes = map(channel);
+        int n = bytes.limit();
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            byte b = bytes.get(i);
+            if (b == LF || (b == CR && (i + 1 >= n || bytes.get(i + 1) != LF))) {
+                count++;
+            }
+        }
+        if (n > 0) {
+            byte last = bytes.get(n - 1);
+            if (last != LF && last != CR) {
+                // the last line is not terminated by a line separator
+                count++;
+            }
+        }
+        return count;
+    }
+}
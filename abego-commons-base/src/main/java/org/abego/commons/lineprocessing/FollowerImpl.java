@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+import static org.abego.commons.lineprocessing.FileChunk.positionAfterLastLineFeed;
+import static org.abego.commons.lineprocessing.MappedLineSource.newMappedLineSource;
+
+/**
+ * Processes the lines appended to a growing file, incrementally, using a
+ * single {@link ScriptRun} (and state) for all increments.
+ */
+final class FollowerImpl implements LineProcessing.Follower {
+    /**
+     * The fingerprint of a checkpoint is calculated from at most this
+     * number of bytes at the beginning of the file.
+     */
+    static final int FINGERPRINT_LENGTH = 1024;
+    static final long NO_FINGERPRINT = -1;
+
+    private final ScriptRun run;
+    private final Path file;
+    private final Charset charset;
+    private long byteOffset;
+    private int lineNumber;
+    private long fingerprint;
+    private @Nullable Object fileKey = null;
+    private boolean finished = false;
+
+    FollowerImpl(
+            ScriptRun run,
+            Path file,
+            Charset charset,
+            LineProcessing.Checkpoint checkpoint) {
+        this.run = run;
+        this.file = file;
+        this.charset = charset;
+        this.byteOffset = checkpoint.byteOffset();
+        this.lineNumber = checkpoint.lineNumber();
+        this.fingerprint = checkpoint.fingerprint();
+    }
+
+    @Override
+    public int processNewLines() {
+        checkNotFinished();
+        return processNewLines(false);
+    }
+
+    @Override
+    public LineProcessing.Checkpoint checkpoint() {
+        return new CheckpointImpl(byteOffset, lineNumber, fingerprint);
+    }
+
+    @Override
+    public void finish() {
+        checkNotFinished();
+        finished = true;
+        try {
+            processNewLines(true);
+            run.processEndOfText();
+        } finally {
+            run.close();
+        }
+    }
+
+    private void checkNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("Follower already finished"); //NON-NLS
+        }
+    }
+
+    private int processNewLines(boolean includeIncompleteLine) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            long size = channel.size();
+            if (size < byteOffset || isOtherFile(key) || !hasFingerprint(channel)) {
+                // the file was truncated or replaced (e.g. by log rotation):
+                // start again at the beginning of the (new) file.
+                byteOffset = 0;
+                lineNumber = 0;
+                fingerprint = 0;
+            }
+            fileKey = key;
+
+            long end = includeIncompleteLine
+                    ? size
+                    : positionAfterLastLineFeed(channel, byteOffset, size);
+            if (end <= byteOffset) {
+                return 0;
+            }
+            int n = run.processLines(
+                    newMappedLineSource(channel, byteOffset, end, charset),
+                    lineNumber);
+            if (byteOffset < FINGERPRINT_LENGTH || fingerprint == NO_FINGERPRINT) {
+                // the fingerprint does not yet cover all its bytes, or is
+                // unknown (when resuming from a checkpoint without one)
+                fingerprint = fingerprint(channel, end);
+            }
+            byteOffset = end;
+            lineNumber += n;
+            return n;
+
+        } catch (NoSuchFileException e) {
+            // the file may be (temporarily) missing, e.g. during a log
+            // rotation. Try again with the next call.
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isOtherFile(@Nullable Object key) {
+        Object previousKey = fileKey;
+        return previousKey != null && key != null && !previousKey.equals(key);
+    }
+
+    /**
+     * Returns {@code true} when the beginning of the file still has the
+     * checkpoint's fingerprint, or when the fingerprint is unknown.
+     * <p>
+     * This detects a file replaced while the follower was stopped (the
+     * file key is not known then), and a file truncated and grown beyond
+     * the checkpoint between two calls (the size check misses this).
+     */
+    private boolean hasFingerprint(FileChannel channel) throws IOException {
+        return fingerprint == NO_FINGERPRINT || byteOffset == 0 ||
+                fingerprint(channel, byteOffset) == fingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of the first {@code length} bytes of the file
+     * (at most {@link #FINGERPRINT_LENGTH} bytes are used).
+     */
+    private static long fingerprint(FileChannel channel, long length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(
+                (int) Math.min(length, FINGERPRINT_LENGTH));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        return crc.getValue();
+    }
+
+    static final class CheckpointImpl implements LineProcessing.Checkpoint {
+        private final long byteOffset;
+        private final int lineNumber;
+        private final long fingerprint;
+
+        CheckpointImpl(long byteOffset, int lineNumber, long fingerprint) {
+            this.byteOffset = byteOffset;
+            this.lineNumber = lineNumber;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public long byteOffset() {
+            return byteOffset;
+        }
+
+        @Override
+        public int lineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public long fingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CheckpointImpl)) {
+                return false;
+            }
+            CheckpointImpl that = (CheckpointImpl) o;
+            return byteOffset == that.byteOffset && lineNumber == that.lineNumber
+                    && fingerprint == that.fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(byteOffset) * 31 + lineNumber) * 31
+                    + Long.hashCode(fingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return "Checkpoint{byteOffset=" + byteOffset + //NON-NLS
+                    ", lineNumber=" + lineNumber + //NON-NLS
+                    ", fingerprint=" + fingerprint + "}"; //NON-NLS
+        }
+    }
+}
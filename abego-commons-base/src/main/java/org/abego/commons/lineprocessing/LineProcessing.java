@@ -24,11 +24,17 @@
 
 package org.abego.commons.lineprocessing;
 
+import org.eclipse.jdt.annotation.Nullable;
+
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 
@@ -62,11 +68,78 @@ public interface LineProcessing {
      * {@code stateProvider} once at the beginning of every
      * {@code Script.process(...)} execution and uses the provided
      * state instance throughout that execution.
+     * <p>
+     * When processing in parallel
+     * ({@link Script#processInParallel(Path, Charset)}) the
+     * {@code stateProvider} is called once for every chunk of the text.
+     * When following a file ({@link Script#follow(Path, Charset, Checkpoint)})
+     * the {@code stateProvider} is called once for the whole follow session.
      */
     static <S> ScriptBuilder<S> newScriptBuilder(Supplier<S> stateProvider) {
         return new ScriptBuilderImpl<>(stateProvider);
     }
 
+    /**
+     * Returns a {@link Script} that processes every line with all the given
+     * {@code scripts}, in a single pass over the input, i.e. every line is
+     * read and decoded only once.
+     * <p>
+     * Every one of the {@code scripts} uses its own state, as when
+     * processing the input separately. The scripts process a line in the
+     * order they are given, in the calling thread. At the end of the text
+     * the `end of text` actions of all scripts are executed.
+     * <p>
+     * The combined script always processes its input in a single pass,
+     * also when called with {@code processInParallel}. Its
+     * {@link Script#statistics()} combine the statistics of the individual
+     * scripts: the rules of all scripts, in order, the number of lines
+     * processed and the sums of the other counts.
+     */
+    static Script newCombinedScript(Script... scripts) {
+        return CombinedScript.newCombinedScript(scripts, false);
+    }
+
+    /**
+     * Returns a {@link Script} that processes every line with all the given
+     * {@code scripts}, in a single pass over the input, running every script
+     * in its own thread.
+     * <p>
+     * The lines read are handed over to the scripts' threads through
+     * bounded queues, i.e. the reading of the input blocks when a script
+     * falls behind. Every script processes the lines in order, but the
+     * actions of different scripts run concurrently. The {@code process}
+     * call returns when all scripts finished their `end of text` actions.
+     * When a script throws an exception the exception is rethrown by the
+     * {@code process} call.
+     * <p>
+     * See {@link #newCombinedScript(Script...)} for more details.
+     */
+    static Script newConcurrentCombinedScript(Script... scripts) {
+        return CombinedScript.newCombinedScript(scripts, true);
+    }
+
+    /**
+     * Returns a {@link Checkpoint} for the given {@code byteOffset},
+     * {@code lineNumber} and {@code fingerprint}, e.g. to resume following
+     * a file with values persisted from an earlier
+     * {@link Follower#checkpoint()}.
+     */
+    static Checkpoint newCheckpoint(long byteOffset, int lineNumber, long fingerprint) {
+        return new FollowerImpl.CheckpointImpl(byteOffset, lineNumber, fingerprint);
+    }
+
+    /**
+     * Returns a {@link Checkpoint} for the given {@code byteOffset} and
+     * {@code lineNumber}, without a fingerprint.
+     * <p>
+     * When resuming from a checkpoint without a fingerprint a file replaced
+     * in the meantime is not detected when it is not shorter than
+     * {@code byteOffset}.
+     */
+    static Checkpoint newCheckpoint(long byteOffset, int lineNumber) {
+        return newCheckpoint(byteOffset, lineNumber, FollowerImpl.NO_FINGERPRINT);
+    }
+
     interface Context {
         /**
          * Returns the text of the line currently processed.
@@ -78,6 +151,18 @@ public interface LineProcessing {
          */
         int lineNumber();
 
+        /**
+         * Returns the file whose lines are processed, or {@code null} when
+         * the text does not come from a file passed to the script (e.g. when
+         * processing a String or an {@link InputStream}).
+         * <p>
+         * Together with {@link #lineNumber()} this identifies the origin of
+         * a line, e.g. when processing multiple files with
+         * {@link Script#processFiles(Path, Predicate, Charset, int)}.
+         */
+        @Nullable
+        Path file();
+
         /**
          * Returns {@code true} when processing a pattern matching rule is
          * executed ({@link ScriptBuilder#onMatch(BiPredicate, BiConsumer)}),
@@ -139,6 +224,277 @@ public interface LineProcessing {
          * the inputStream uses {@code UTF-8} as encoding.
          */
         void process(InputStream inputStream);
+
+        /**
+         * Process the lines of the given {@code file}, assuming the file
+         * uses the given {@code charset} as encoding.
+         * <p>
+         * The file is memory-mapped (in windows, for large files) and lines
+         * are only decoded when their text is accessed.
+         */
+        void process(Path file, Charset charset);
+
+        /**
+         * Process the lines of the given {@code file}, assuming the file
+         * uses {@code UTF-8} as encoding.
+         * <p>
+         * See {@link #process(Path, Charset)} for details.
+         */
+        void process(Path file);
+
+        /**
+         * Process the lines of the given {@code file}, assuming the file
+         * uses the given {@code charset} as encoding, using multiple threads
+         * when possible.
+         * <p>
+         * The file is split into chunks at line boundaries, and the chunks
+         * are processed in parallel, each chunk with its own state as
+         * provided by the {@code stateProvider}. As the actions for
+         * different chunks run concurrently an action must not modify
+         * anything but the state passed to it. {@link Context#lineNumber()}
+         * reports the same line numbers as in sequential processing.
+         * <p>
+         * When all chunks are processed their states are merged, in the
+         * order of the chunks, using the function defined with
+         * {@link ScriptBuilder#onMergeStates(BinaryOperator)}. Then the
+         * `end of text` action is executed with the merged state.
+         * <p>
+         * The file is processed sequentially, with a single state, when no
+         * merge function is defined, when the script
+         * {@linkplain ScriptBuilder#requireSequentialProcessing() requires
+         * sequential processing}, or when the {@code charset} does not
+         * support splitting the text at the byte level (e.g. UTF-16).
+         */
+        void processInParallel(Path file, Charset charset);
+
+        /**
+         * Process the lines of the given {@code file}, assuming the file
+         * uses {@code UTF-8} as encoding, using multiple threads when
+         * possible.
+         * <p>
+         * See {@link #processInParallel(Path, Charset)} for details.
+         */
+        void processInParallel(Path file);
+
+        /**
+         * Processes the lines of all files in the {@code directory} and
+         * deeper that are selected by the {@code selector}, using up to
+         * {@code maxConcurrency} threads.
+         * <p>
+         * Every file is processed like with {@link #process(Path, Charset)},
+         * with its own state and executing the `end of text` action at the
+         * end of every file. {@link Context#file()} tells the file currently
+         * processed. As the actions for different files run concurrently
+         * they must be thread-safe when they access anything but the state.
+         * <p>
+         * When a merge function is defined
+         * ({@link ScriptBuilder#onMergeStates(BinaryOperator)}) the states of
+         * all files are merged, in the order of the files' paths, and the
+         * `end of text` action is only executed once, with the merged
+         * state. When additionally the script
+         * {@linkplain ScriptBuilder#requireSequentialProcessing() requires
+         * sequential processing} the files are processed one after the
+         * other, with a single state.
+         * <p>
+         * Large files are started first, so a single large file does not
+         * delay the end of the processing when started late.
+         */
+        void processFiles(
+                Path directory,
+                Predicate<Path> selector,
+                Charset charset,
+                int maxConcurrency);
+
+        /**
+         * Processes the lines of all files in the {@code directory} and
+         * deeper that are selected by the {@code selector}, assuming the
+         * files use {@code UTF-8} as encoding, using multiple threads.
+         * <p>
+         * See {@link #processFiles(Path, Predicate, Charset, int)} for
+         * details.
+         */
+        void processFiles(Path directory, Predicate<Path> selector);
+
+        /**
+         * Returns a {@link Follower} to process the lines appended to the
+         * growing {@code file} (e.g. a log file), starting at the
+         * {@code checkpoint}.
+         * <p>
+         * The follower calls the {@code stateProvider} once and uses that
+         * state for all lines processed, so the work for every
+         * {@link Follower#processNewLines()} call is proportional to the
+         * new data only.
+         * <p>
+         * The {@code charset} must support splitting the text at the byte
+         * level, like UTF-8 or ISO-8859-1, otherwise an
+         * {@link IllegalArgumentException} is thrown.
+         */
+        Follower follow(Path file, Charset charset, Checkpoint checkpoint);
+
+        /**
+         * Returns a {@link Follower} to process the lines appended to the
+         * growing {@code file}, starting at the beginning of the file.
+         * <p>
+         * See {@link #follow(Path, Charset, Checkpoint)} for details.
+         */
+        Follower follow(Path file, Charset charset);
+
+        /**
+         * Returns a {@link Follower} to process the lines appended to the
+         * growing {@code file}, assuming the file uses {@code UTF-8} as
+         * encoding, starting at the beginning of the file.
+         * <p>
+         * See {@link #follow(Path, Charset, Checkpoint)} for details.
+         */
+        Follower follow(Path file);
+
+        /**
+         * Returns the statistics collected by all {@code process...} calls
+         * of this script so far.
+         * <p>
+         * Statistics are only collected when
+         * {@link ScriptBuilder#collectStatistics()} was called before the
+         * script was built. Otherwise, all numbers are 0.
+         */
+        Statistics statistics();
+    }
+
+    /**
+     * Processes the lines appended to a growing file, as returned by
+     * {@link Script#follow(Path, Charset, Checkpoint)}.
+     * <p>
+     * A Follower is not thread-safe.
+     */
+    interface Follower {
+        /**
+         * Processes the complete lines (i.e. lines terminated by a line
+         * feed) appended to the file since the last call, or since the
+         * initial checkpoint, and returns the number of lines processed.
+         * <p>
+         * When the file got shorter than the current checkpoint (e.g. it was
+         * truncated) or was replaced by another file (e.g. by a log
+         * rotation) the file is processed from its beginning, with line
+         * numbers starting again at 1. When the file does not exist
+         * nothing is processed.
+         */
+        int processNewLines();
+
+        /**
+         * Returns the position after the last line processed.
+         * <p>
+         * Persist the checkpoint's values to later resume following the
+         * file (see {@link LineProcessing#newCheckpoint(long, int, long)}).
+         */
+        Checkpoint checkpoint();
+
+        /**
+         * Processes the lines appended to the file, including a last line
+         * not terminated by a line feed, and then executes the
+         * `end of text` action.
+         * <p>
+         * Calling any method but {@link #checkpoint()} after
+         * {@code finish} throws an {@link IllegalStateException}.
+         */
+        void finish();
+    }
+
+    /**
+     * A position in a file followed by a {@link Follower}.
+     */
+    interface Checkpoint {
+        /**
+         * Returns the offset in the file, in bytes, of the first byte not yet
+         * processed.
+         */
+        long byteOffset();
+
+        /**
+         * Returns the number of the last line processed, or 0 when no line
+         * was processed yet.
+         */
+        int lineNumber();
+
+        /**
+         * Returns a fingerprint of the beginning of the file (up to the
+         * byte offset), or -1 when it is unknown.
+         * <p>
+         * When resuming from a checkpoint whose fingerprint does not match
+         * the file the file is processed from its beginning, as the file was
+         * replaced (e.g. by a log rotation) while the follower was stopped.
+         */
+        long fingerprint();
+    }
+
+    /**
+     * Statistics on the processing of lines by a {@link Script}, e.g. to find
+     * out which rules are slow.
+     */
+    interface Statistics {
+        /**
+         * Returns the number of lines processed.
+         */
+        long lineCount();
+
+        /**
+         * Returns how often the `default` action was executed.
+         */
+        long defaultActionCount();
+
+        /**
+         * Returns how often an action called {@link Context#more()}, i.e.
+         * how often the lookup for a matching rule continued after a rule
+         * matched.
+         */
+        long moreCount();
+
+        /**
+         * Returns the statistics of the individual rules, in the order the
+         * rules were defined.
+         */
+        List<RuleStatistics> ruleStatistics();
+
+        /**
+         * Returns the statistics as a text, with one line per rule.
+         */
+        String text();
+    }
+
+    /**
+     * Statistics on a single rule of a {@link Script}.
+     */
+    interface RuleStatistics {
+        /**
+         * Returns the (0-based) index of the rule, in the order the rules
+         * were defined.
+         */
+        int ruleIndex();
+
+        /**
+         * Returns the regular expression of a pattern matching rule, or
+         * {@code "<condition>"} for other rules.
+         */
+        String ruleText();
+
+        /**
+         * Returns how often the rule's condition was checked.
+         */
+        long attemptCount();
+
+        /**
+         * Returns how often the rule's condition was met.
+         */
+        long matchCount();
+
+        /**
+         * Returns the total time spent checking the rule's condition, in
+         * nanoseconds.
+         */
+        long matchNanos();
+
+        /**
+         * Returns the total time spent in the rule's action, in nanoseconds.
+         */
+        long actionNanos();
     }
 
     interface ScriptBuilder<S> {
@@ -205,6 +561,57 @@ public interface LineProcessing {
          */
         void onEndOfText(BiConsumer<Context, S> action);
 
+        /**
+         * Defines the function to merge two states into one, enabling the
+         * parallel processing of texts
+         * ({@link Script#processInParallel(Path, Charset)}).
+         * <p>
+         * When processing in parallel every chunk of the text is processed
+         * with its own state. The {@code mergeFunction} receives the state of
+         * the text before a chunk (the first parameter) and the state of that
+         * chunk (the second parameter) and returns the combined state. The
+         * function may modify and return one of its parameters.
+         *
+         * @param mergeFunction merges the states of two consecutive parts of
+         *                      the text into one state.
+         */
+        void onMergeStates(BinaryOperator<S> mergeFunction);
+
+        /**
+         * Marks the script to always process the lines of a text one after
+         * the other, in one thread, with a single state.
+         * <p>
+         * Use this when the rules depend on the order of the lines, e.g.
+         * when an action relies on the state changes made for previous lines.
+         */
+        void requireSequentialProcessing();
+
+        /**
+         * Makes the script collect statistics on the processing of lines,
+         * accessible via {@link Script#statistics()}.
+         * <p>
+         * Collecting statistics slows down the processing a little. Without
+         * calling this method no statistics are collected.
+         */
+        void collectStatistics();
+
+        /**
+         * Makes the script read and decode its input in a separate thread,
+         * ahead of the processing of the lines.
+         * <p>
+         * This overlaps the I/O (e.g. on a network file system) with the
+         * processing of the lines and is most useful when both take a
+         * significant amount of time. Lines are handed over in batches,
+         * through a bounded queue, so the memory used does not depend on
+         * the size of the input.
+         * <p>
+         * This applies when the input is processed sequentially, i.e. not to
+         * the chunks processed by
+         * {@link Script#processInParallel(Path, Charset)}, nor to
+         * {@link Script#follow(Path, Charset, Checkpoint)}.
+         */
+        void pipelineInput();
+
         /**
          * Returns a new {@link Script} instance as defined by the previous
          * calls to the builder.
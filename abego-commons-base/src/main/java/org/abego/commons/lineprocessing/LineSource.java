@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.io.IOException;
+
+/**
+ * A source of lines, read one after the other.
+ * <p>
+ * Lines are separated by a line feed ('\n'), a carriage return ('\r'), or
+ * a carriage return followed immediately by a line feed, like in
+ * {@link java.io.BufferedReader#readLine()}. The line separators are not
+ * part of the lines.
+ */
+interface LineSource {
+    /**
+     * Advances to the next line and returns {@code true}, or returns
+     * {@code false} when there are no more lines.
+     */
+    boolean nextLine() throws IOException;
+
+    /**
+     * Returns the current line.
+     * <p>
+     * The returned {@link CharSequence} may be reused for the next lines,
+     * i.e. its content changes when calling {@link #nextLine()}. Use
+     * {@link CharSequence#toString()} to get a stable copy of the line.
+     * <p>
+     * After {@link #nextLine()} returned {@code false} the last line
+     * read (if any) is still available.
+     */
+    CharSequence line();
+}
@@ -0,0 +1,275 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A {@link LineSource} reading the lines of a range of a file, using
+ * memory-mapped windows of the file.
+ * <p>
+ * The line separators are found at the byte level, so the file's charset
+ * must support this (see {@link FileChunk#canSplitAtLineFeeds(Charset)}).
+ * A line is only decoded when its characters are accessed, using a
+ * {@link CharsetDecoder} reused for all lines. Lines consisting of ASCII
+ * characters only are not decoded at all but read directly from the mapped
+ * bytes.
+ * <p>
+ * Files larger than the maximal window size (including files larger than
+ * 2 GB) are mapped in multiple windows, one after the other.
+ */
+final class MappedLineSource implements LineSource {
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final FileChannel channel;
+    private final long end;
+    private final MappedLine line;
+    private int windowSize;
+    private MappedByteBuffer window;
+    /**
+     * The file position of the first byte of the {@link #window}.
+     */
+    private long windowStart;
+    /**
+     * The index in the {@link #window} of the first byte not yet returned in
+     * a line.
+     */
+    private int pos = 0;
+
+    private MappedLineSource(
+            FileChannel channel, long start, long end, Charset charset, int windowSize)
+            throws IOException {
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.line = new MappedLine(charset);
+        this.windowStart = start;
+        this.window = map(start);
+    }
+
+    /**
+     * Returns a {@link LineSource} for the bytes of the {@code channel}
+     * from position {@code start} (inclusive) to {@code end} (exclusive),
+     * decoded with the given {@code charset}.
+     */
+    static MappedLineSource newMappedLineSource(
+            FileChannel channel, long start, long end, Charset charset)
+            throws IOException {
+        return new MappedLineSource(channel, start, end, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    static MappedLineSource newMappedLineSource(
+            FileChannel channel, long start, long end, Charset charset, int windowSize)
+            throws IOException {
+        return new MappedLineSource(channel, start, end, charset, windowSize);
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            boolean isLastWindow = windowStart + limit >= end;
+            if (pos >= limit && isLastWindow) {
+                return false;
+            }
+
+            int nonAscii = 0;
+            for (int i = pos; i < limit; i++) {
+                byte b = window.get(i);
+                if (b == LF || b == CR) {
+                    int next = i + 1;
+                    if (b == CR) {
+                        if (next < limit) {
+                            if (window.get(next) == LF) {
+                                next++;
+                            }
+                        } else if (!isLastWindow) {
+                            // we need to know the byte after the CR
+                            break;
+                        }
+                    }
+                    line.set(window, pos, i - pos, nonAscii >= 0);
+                    pos = next;
+                    return true;
+                }
+                nonAscii |= b;
+            }
+
+            if (isLastWindow) {
+                // the last line is not terminated by a line separator
+                line.set(window, pos, limit - pos, nonAscii >= 0);
+                pos = limit;
+                return true;
+            }
+
+            // The line continues in the next window. Start the new window
+            // at the beginning of the line (and make it larger, if the line
+            // does not fit in a window).
+            if (pos == 0) {
+                windowSize = (int) Math.min(Integer.MAX_VALUE, 2L * windowSize);
+            }
+            long newWindowStart = windowStart + pos;
+            window = map(newWindowStart);
+            windowStart = newWindowStart;
+            pos = 0;
+        }
+    }
+
+    @Override
+    public CharSequence line() {
+        return line;
+    }
+
+    private MappedByteBuffer map(long start) throws IOException {
+        long size = Math.min(windowSize, end - start);
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+
+    /**
+     * A line, as a range of bytes in a buffer, decoded on demand.
+     */
+    private static final class MappedLine implements CharSequence {
+        private final CharsetDecoder decoder;
+        private final boolean isAsciiCompatible;
+        private ByteBuffer bytes = ByteBuffer.allocate(0);
+        private ByteBuffer bytesToDecode = bytes.duplicate();
+        private CharBuffer chars = CharBuffer.allocate(256);
+        private int start = 0;
+        private int byteCount = 0;
+        private boolean isAscii = true;
+        private boolean isDecoded = false;
+
+        private MappedLine(Charset charset) {
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.isAsciiCompatible = isAsciiCompatible(charset);
+        }
+
+        /**
+         * Returns {@code true} when the bytes 0..127 decode to the ASCII
+         * characters 0..127 in the {@code charset}.
+         */
+        private static boolean isAsciiCompatible(Charset charset) {
+            byte[] bytes = new byte[128];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            String text = new String(bytes, charset);
+            if (text.length() != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (text.charAt(i) != i) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void set(ByteBuffer bytes, int start, int byteCount, boolean isAscii) {
+            if (this.bytes != bytes) {
+                this.bytes = bytes;
+                this.bytesToDecode = bytes.duplicate();
+            }
+            this.start = start;
+            this.byteCount = byteCount;
+            this.isAscii = isAscii && isAsciiCompatible;
+            this.isDecoded = false;
+        }
+
+        @Override
+        public int length() {
+            if (isAscii) {
+                return byteCount;
+            }
+            decode();
+            return chars.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (isAscii) {
+                if (index < 0 || index >= byteCount) {
+                    throw new StringIndexOutOfBoundsException(index);
+                }
+                return (char) bytes.get(start + index);
+            }
+            decode();
+            return chars.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int startIndex, int endIndex) {
+            return toString().substring(startIndex, endIndex);
+        }
+
+        @Override
+        public String toString() {
+            if (isAscii) {
+                char[] result = new char[byteCount];
+                for (int i = 0; i < byteCount; i++) {
+                    result[i] = (char) bytes.get(start + i);
+                }
+                return new String(result);
+            }
+            decode();
+            return chars.toString();
+        }
+
+        private void decode() {
+            if (isDecoded) {
+                return;
+            }
+            int maxCharCount = (int) Math.ceil(byteCount * (double) decoder.maxCharsPerByte());
+            if (chars.capacity() < maxCharCount) {
+                chars = CharBuffer.allocate(maxCharCount);
+            }
+            chars.clear();
+            bytesToDecode.limit(start + byteCount);
+            bytesToDecode.position(start);
+            decoder.reset();
+            CoderResult result = decoder.decode(bytesToDecode, chars, true);
+            if (!result.isError()) {
+                result = decoder.flush(chars);
+            }
+            if (result.isOverflow()) {
+                throw new IllegalStateException("Decoding buffer too small"); //NON-NLS
+            }
+            chars.flip();
+            isDecoded = true;
+        }
+    }
+}
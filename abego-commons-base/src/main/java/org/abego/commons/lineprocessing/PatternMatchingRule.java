@@ -28,23 +28,60 @@ import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static org.abego.commons.lineprocessing.PatternPrefilter.newPatternPrefilter;
+
 class PatternMatchingRule<S> implements Rule<S> {
     private final Pattern pattern;
+    private final PatternPrefilter prefilter;
     private final BiConsumer<LineProcessing.Context, S> action;
+    /**
+     * The slot of the {@link Matcher} for this rule in a {@link ContextImpl}
+     * (see {@link ContextImpl#matcher(int, Pattern)}).
+     */
+    private final int matcherSlot;
+    private final int index;
 
-    PatternMatchingRule(Pattern pattern, BiConsumer<LineProcessing.Context, S> action) {
+    PatternMatchingRule(
+            Pattern pattern,
+            BiConsumer<LineProcessing.Context, S> action,
+            int matcherSlot,
+            int index) {
         this.pattern = pattern;
+        this.prefilter = newPatternPrefilter(pattern);
         this.action = action;
+        this.matcherSlot = matcherSlot;
+        this.index = index;
     }
 
-    public boolean apply(ContextImpl context, S state) {
-        Matcher m = pattern.matcher(context.line());
+    public boolean test(ContextImpl context, S state) {
+        if (!prefilter.mayMatch(context.lineChars())) {
+            return false;
+        }
+        Matcher m = context.matcher(matcherSlot, pattern);
         if (m.matches()) {
             context.setMatcher(m);
-            action.accept(context, state);
             return true;
         } else {
             return false;
         }
     }
+
+    public void runAction(ContextImpl context, S state) {
+        action.accept(context, state);
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public String text() {
+        return pattern.pattern();
+    }
+
+    @Override
+    public String requiredPrefix() {
+        return prefilter.prefix();
+    }
 }
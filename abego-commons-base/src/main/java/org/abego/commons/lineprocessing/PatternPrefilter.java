@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.util.regex.Pattern;
+
+/**
+ * A cheap check that tells if a line may match a {@link Pattern}, i.e. if it
+ * is worth to run the (expensive) regular expression matching on the line.
+ * <p>
+ * The check is derived from the literal text in the regular expression:
+ * the literal text the regex starts with (the "prefix") and the longest
+ * other literal text the regex requires at its top level. A line not
+ * starting with the prefix, or not containing the required literal, cannot
+ * match the pattern.
+ * <p>
+ * The analysis is conservative: whenever the regular expression uses
+ * features that make the literal text optional or change its meaning
+ * (alternations, flags, quoting, ...) no literal text is used and every
+ * line "may match".
+ */
+final class PatternPrefilter {
+    private static final PatternPrefilter NONE = new PatternPrefilter("", "");
+    private static final Pattern INLINE_FLAGS = Pattern.compile(".*\\(\\?[a-zA-Z-].*", Pattern.DOTALL);
+    /**
+     * The letters of escapes like {@code \d} or {@code \n} that stand for
+     * exactly one "token", i.e. are not followed by more characters
+     * belonging to the escape (like in {@code \x41} or {@code \p{L}}).
+     */
+    private static final String SINGLE_TOKEN_ESCAPES = "dDsSwWbBAGZzhHvVRXtnrfae"; //NON-NLS
+
+    private final String prefix;
+    private final String requiredLiteral;
+
+    private PatternPrefilter(String prefix, String requiredLiteral) {
+        this.prefix = prefix;
+        this.requiredLiteral = requiredLiteral;
+    }
+
+    static PatternPrefilter newPatternPrefilter(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return NONE;
+        }
+        String regex = pattern.pattern();
+        if (regex.indexOf('|') >= 0 || INLINE_FLAGS.matcher(regex).matches()) {
+            return NONE;
+        }
+        return new Analyzer(regex).analyze();
+    }
+
+    /**
+     * Returns the literal text every line matching the pattern starts with,
+     * or the empty String when no such text is known.
+     */
+    String prefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns {@code false} when the {@code line} cannot match the pattern,
+     * {@code true} otherwise.
+     */
+    boolean mayMatch(CharSequence line) {
+        return startsWith(line, prefix) &&
+                (requiredLiteral.isEmpty() ||
+                        indexOf(line, requiredLiteral, prefix.length()) >= 0);
+    }
+
+    private static boolean startsWith(CharSequence text, String prefix) {
+        if (text instanceof String) {
+            return ((String) text).startsWith(prefix);
+        }
+        int n = prefix.length();
+        if (text.length() < n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (text.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, String literal, int fromIndex) {
+        if (text instanceof String) {
+            return ((String) text).indexOf(literal, fromIndex);
+        }
+        int n = literal.length();
+        char first = literal.charAt(0);
+        int max = text.length() - n;
+        for (int i = fromIndex; i <= max; i++) {
+            if (text.charAt(i) == first && regionMatches(text, i + 1, literal, 1, n - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(
+            CharSequence text, int textOffset, String literal, int literalOffset, int length) {
+        for (int k = 0; k < length; k++) {
+            if (text.charAt(textOffset + k) != literal.charAt(literalOffset + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Analyzer {
+        private final String regex;
+        private final StringBuilder run = new StringBuilder();
+        private String prefix = "";
+        private String longestLiteral = "";
+        private boolean inPrefix = true;
+        private boolean lastTokenIsLiteral = false;
+        private int i = 0;
+
+        private Analyzer(String regex) {
+            this.regex = regex;
+        }
+
+        private PatternPrefilter analyze() {
+            int n = regex.length();
+            if (n > 0 && regex.charAt(0) == '^') {
+                i++;
+            }
+            while (i < n) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    if (i + 1 >= n) {
+                        return NONE;
+                    }
+                    char next = regex.charAt(i + 1);
+                    if (Character.isLetterOrDigit(next)) {
+                        if (SINGLE_TOKEN_ESCAPES.indexOf(next) < 0) {
+                            return NONE;
+                        }
+                        endRun();
+                    } else {
+                        addLiteral(next);
+                    }
+                    i += 2;
+                } else if (c == '(') {
+                    endRun();
+                    i = skipGroup(i);
+                } else if (c == '[') {
+                    endRun();
+                    i = skipCharClass(i);
+                } else if (c == '*' || c == '+' || c == '?') {
+                    quantifier();
+                    i++;
+                } else if (c == '{') {
+                    quantifier();
+                    i = regex.indexOf('}', i) + 1;
+                } else if (c == '.' || c == '^' || c == '$') {
+                    endRun();
+                    i++;
+                } else if (c == ')' || c == ']' || c == '}') {
+                    return NONE;
+                } else {
+                    addLiteral(c);
+                    i++;
+                }
+                if (i <= 0) {
+                    return NONE;
+                }
+            }
+            endRun();
+
+            return prefix.isEmpty() && longestLiteral.isEmpty()
+                    ? NONE : new PatternPrefilter(prefix, longestLiteral);
+        }
+
+        private void addLiteral(char c) {
+            run.append(c);
+            lastTokenIsLiteral = true;
+        }
+
+        private void quantifier() {
+            // the quantifier makes the previous literal optional/repeated
+            if (lastTokenIsLiteral) {
+                int len = run.length();
+                int removeCount = len >= 2 &&
+                        Character.isSurrogatePair(run.charAt(len - 2), run.charAt(len - 1))
+                        ? 2 : 1;
+                run.setLength(len - removeCount);
+            }
+            endRun();
+        }
+
+        private void endRun() {
+            if (inPrefix) {
+                prefix = run.toString();
+                inPrefix = false;
+            } else if (run.length() > longestLiteral.length()) {
+                longestLiteral = run.toString();
+            }
+            run.setLength(0);
+            lastTokenIsLiteral = false;
+        }
+
+        /**
+         * Returns the index after the group starting at {@code start}, or -1
+         * when the group is not terminated.
+         */
+        private int skipGroup(int start) {
+            int depth = 0;
+            int j = start;
+            int n = regex.length();
+            while (j < n) {
+                char c = regex.charAt(j);
+                if (c == '\\') {
+                    j += 2;
+                } else if (c == '[') {
+                    j = skipCharClass(j);
+                    if (j < 0) {
+                        return -1;
+                    }
+                } else {
+                    if (c == '(') {
+                        depth++;
+                    } else if (c == ')') {
+                        depth--;
+                        if (depth == 0) {
+                            return j + 1;
+                        }
+                    }
+                    j++;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the index after the character class starting at
+         * {@code start}, or -1 when the class is not terminated or
+         * too complex to analyze.
+         */
+        private int skipCharClass(int start) {
+            int depth = 0;
+            int j = start;
+            int n = regex.length();
+            while (j < n) {
+                char c = regex.charAt(j);
+                if (c == '\\') {
+                    j += 2;
+                    continue;
+                }
+                if (c == '[') {
+                    depth++;
+                    // A ']' directly after '[' or '[^' is tricky, don't analyze
+                    int k = j + 1 < n && regex.charAt(j + 1) == '^' ? j + 2 : j + 1;
+                    if (k < n && regex.charAt(k) == ']') {
+                        return -1;
+                    }
+                } else if (c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return j + 1;
+                    }
+                }
+                j++;
+            }
+            return -1;
+        }
+    }
+}
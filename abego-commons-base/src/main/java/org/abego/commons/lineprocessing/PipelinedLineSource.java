@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static org.abego.commons.lang.exception.UncheckedException.newUncheckedException;
+
+/**
+ * A {@link LineSource} reading the lines of another LineSource in a separate
+ * thread, ahead of the lines requested.
+ * <p>
+ * I.e. the I/O and decoding of the source runs in parallel to the
+ * processing of the lines already read. The lines are handed over in
+ * batches, through a bounded queue. The batches are pooled and reused, so
+ * the memory used is bounded, independent of the size of the input.
+ * <p>
+ * Always {@link #close()} a PipelinedLineSource, to stop the reading thread
+ * when not all lines were requested.
+ */
+final class PipelinedLineSource implements LineSource, AutoCloseable {
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 8;
+
+    private final LineSource source;
+    private final BlockingQueue<Batch> filledBatches =
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> freeBatches =
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+    private final Thread readerThread;
+    private Batch batch = new Batch();
+    private int index = 0;
+    private String line = ""; //NON-NLS
+
+    private PipelinedLineSource(LineSource source) {
+        this.source = source;
+        for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+            freeBatches.add(new Batch());
+        }
+        readerThread = new Thread(this::readLines, "LineProcessing reader"); //NON-NLS
+        readerThread.setDaemon(true);
+    }
+
+    static PipelinedLineSource newPipelinedLineSource(LineSource source) {
+        PipelinedLineSource result = new PipelinedLineSource(source);
+        result.readerThread.start();
+        return result;
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        while (index >= batch.size) {
+            if (batch.isLast) {
+                return false;
+            }
+            freeBatches.add(batch);
+            batch = takeFilledBatch();
+            index = 0;
+        }
+        line = batch.lines[index];
+        index++;
+        return true;
+    }
+
+    @Override
+    public CharSequence line() {
+        return line;
+    }
+
+    /**
+     * Stops the reading thread, when still running, and waits for it to
+     * terminate.
+     */
+    @Override
+    public void close() {
+        readerThread.interrupt();
+        try {
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Batch takeFilledBatch() throws IOException {
+        Batch result;
+        try {
+            result = filledBatches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw newUncheckedException(e);
+        }
+        Throwable failure = result.failure;
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw newUncheckedException(failure);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the lines of the source into batches (running in the reader
+     * thread).
+     */
+    private void readLines() {
+        try {
+            Batch filling = takeFreeBatch();
+            while (source.nextLine()) {
+                filling.lines[filling.size] = source.line().toString();
+                filling.size++;
+                if (filling.size == BATCH_SIZE) {
+                    filledBatches.put(filling);
+                    filling = takeFreeBatch();
+                }
+            }
+            filling.isLast = true;
+            filledBatches.put(filling);
+
+        } catch (InterruptedException e) {
+            // closed, stop reading
+        } catch (Throwable e) {
+            Batch failed = new Batch();
+            failed.isLast = true;
+            failed.failure = e;
+            try {
+                filledBatches.put(failed);
+            } catch (InterruptedException ignored) {
+                // closed, nobody waits for the failure
+            }
+        }
+    }
+
+    private Batch takeFreeBatch() throws InterruptedException {
+        Batch result = freeBatches.take();
+        result.size = 0;
+        result.isLast = false;
+        return result;
+    }
+
+    private static final class Batch {
+        private final String[] lines = new String[BATCH_SIZE];
+        private int size = 0;
+        private boolean isLast = false;
+        private @Nullable Throwable failure;
+    }
+}
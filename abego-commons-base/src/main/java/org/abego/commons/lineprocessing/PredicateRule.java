@@ -30,22 +30,37 @@ import java.util.function.BiPredicate;
 class PredicateRule<S> implements Rule<S> {
     private final BiPredicate<LineProcessing.Context, S> condition;
     private final BiConsumer<LineProcessing.Context, S> action;
+    private final int index;
 
     PredicateRule(
             BiPredicate<LineProcessing.Context, S> condition,
-            BiConsumer<LineProcessing.Context, S> action) {
+            BiConsumer<LineProcessing.Context, S> action,
+            int index) {
         this.condition = condition;
         this.action = action;
+        this.index = index;
     }
 
-    public boolean apply(ContextImpl context, S state) {
+    public boolean test(ContextImpl context, S state) {
         if (condition.test(context.asReadOnlyContext(), state)) {
             context.setMatcher(null);
-            action.accept(context, state);
             return true;
         } else {
             return false;
         }
     }
 
+    public void runAction(ContextImpl context, S state) {
+        action.accept(context, state);
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public String text() {
+        return "<condition>"; //NON-NLS
+    }
 }
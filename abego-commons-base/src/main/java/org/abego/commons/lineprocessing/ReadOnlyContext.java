@@ -24,6 +24,9 @@
 
 package org.abego.commons.lineprocessing;
 
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.nio.file.Path;
 import java.util.regex.Matcher;
 
 class ReadOnlyContext implements LineProcessing.Context {
@@ -43,6 +46,11 @@ class ReadOnlyContext implements LineProcessing.Context {
         return originalContext.lineNumber();
     }
 
+    @Override
+    public @Nullable Path file() {
+        return originalContext.file();
+    }
+
     @Override
     public boolean isPatternMatchingRule() {
         return originalContext.isPatternMatchingRule();
@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A {@link LineSource} reading the lines from a {@link Reader}.
+ * <p>
+ * The characters are read into a buffer that is reused for all lines, and
+ * the current line is a view on that buffer. I.e. no objects are created
+ * per line, unless a line is converted to a String.
+ */
+final class ReaderLineSource implements LineSource {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final LineChars line = new LineChars();
+    private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+    /**
+     * The index of the first character not yet returned in a line.
+     */
+    private int pos = 0;
+    /**
+     * The index after the last valid character in {@link #buffer}.
+     */
+    private int limit = 0;
+    private boolean skipLF = false;
+    private boolean endOfInput = false;
+
+    private ReaderLineSource(Reader reader) {
+        this.reader = reader;
+    }
+
+    static ReaderLineSource newReaderLineSource(Reader reader) {
+        return new ReaderLineSource(reader);
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        if (skipLF) {
+            if (pos == limit) {
+                fill();
+            }
+            if (pos < limit && buffer[pos] == '\n') {
+                pos++;
+            }
+            skipLF = false;
+        }
+
+        int scanned = 0;
+        while (true) {
+            for (int i = pos + scanned; i < limit; i++) {
+                char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    line.set(buffer, pos, i - pos);
+                    skipLF = c == '\r';
+                    pos = i + 1;
+                    return true;
+                }
+            }
+            scanned = limit - pos;
+            if (!fill()) {
+                if (scanned == 0) {
+                    return false;
+                }
+                // the last line is not terminated by a line separator
+                line.set(buffer, pos, scanned);
+                pos = limit;
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public CharSequence line() {
+        return line;
+    }
+
+    /**
+     * Reads more characters into the buffer, keeping the characters not
+     * yet returned in a line.
+     * <p>
+     * Returns {@code false} when the end of the input is reached.
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        // the buffer will change, so the current line must use its own copy
+        line.detach();
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int n = reader.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            endOfInput = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    /**
+     * A line, as a view on a range of a char array.
+     */
+    private static final class LineChars implements CharSequence {
+        private char[] chars = new char[0];
+        private int start = 0;
+        private int length = 0;
+        private boolean shared = false;
+
+        void set(char[] chars, int start, int length) {
+            this.chars = chars;
+            this.start = start;
+            this.length = length;
+            this.shared = true;
+        }
+
+        /**
+         * Makes sure this line uses its own char array, not shared with
+         * others.
+         */
+        void detach() {
+            if (shared) {
+                chars = Arrays.copyOfRange(chars, start, start + length);
+                start = 0;
+                shared = false;
+            }
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            return chars[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int startIndex, int endIndex) {
+            if (startIndex < 0 || endIndex > length || startIndex > endIndex) {
+                throw new StringIndexOutOfBoundsException(
+                        "begin " + startIndex + ", end " + endIndex + //NON-NLS
+                                ", length " + length); //NON-NLS
+            }
+            return new String(chars, start + startIndex, endIndex - startIndex);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, length);
+        }
+    }
+}
@@ -25,5 +25,47 @@
 package org.abego.commons.lineprocessing;
 
 interface Rule<S> {
-    boolean apply(ContextImpl context, S state);
+    /**
+     * Returns {@code true} when the rule's condition is met for the current
+     * line, {@code false} otherwise.
+     * <p>
+     * When the condition is met the {@code context} is prepared for the
+     * action (see {@link #runAction(ContextImpl, Object)}).
+     */
+    boolean test(ContextImpl context, S state);
+
+    /**
+     * Runs the action of the rule.
+     * <p>
+     * Must only be called directly after
+     * {@link #test(ContextImpl, Object)} returned {@code true}.
+     */
+    void runAction(ContextImpl context, S state);
+
+    default boolean apply(ContextImpl context, S state) {
+        if (test(context, state)) {
+            runAction(context, state);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the (0-based) index of the rule in the script's rules.
+     */
+    int index();
+
+    /**
+     * Returns a text describing the rule, e.g. to be used in statistics.
+     */
+    String text();
+
+    /**
+     * Returns the text every line this rule applies to starts with, or the
+     * empty String when the rule may apply to any line.
+     */
+    default String requiredPrefix() {
+        return "";
+    }
 }
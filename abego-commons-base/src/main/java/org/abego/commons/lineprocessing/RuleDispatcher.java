@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects the rules of a script that may apply to a given line.
+ * <p>
+ * Rules with a {@linkplain Rule#requiredPrefix() required prefix} are only
+ * selected for lines starting with the first character of that prefix.
+ * All other rules are selected for every line. The selected rules are
+ * always in the order they were defined in the script.
+ */
+final class RuleDispatcher<S> {
+    private static final int ASCII_LIMIT = 128;
+
+    private final List<Rule<S>> allRules;
+    private final List<Rule<S>> rulesWithoutPrefix;
+    private final List<List<Rule<S>>> asciiRules;
+    private final Map<Character, List<Rule<S>>> nonAsciiRules = new HashMap<>();
+
+    private RuleDispatcher(List<Rule<S>> rules) {
+        allRules = Collections.unmodifiableList(new ArrayList<>(rules));
+        rulesWithoutPrefix = Collections.unmodifiableList(
+                rulesWithFirstChar(rules, null));
+        asciiRules = new ArrayList<>(ASCII_LIMIT);
+        for (char c = 0; c < ASCII_LIMIT; c++) {
+            asciiRules.add(rulesWithoutPrefix);
+        }
+        for (Rule<S> rule : rules) {
+            String prefix = rule.requiredPrefix();
+            if (!prefix.isEmpty()) {
+                char c = prefix.charAt(0);
+                List<Rule<S>> rulesForChar =
+                        Collections.unmodifiableList(rulesWithFirstChar(rules, c));
+                if (c < ASCII_LIMIT) {
+                    asciiRules.set(c, rulesForChar);
+                } else {
+                    nonAsciiRules.put(c, rulesForChar);
+                }
+            }
+        }
+    }
+
+    static <S> RuleDispatcher<S> newRuleDispatcher(List<Rule<S>> rules) {
+        return new RuleDispatcher<>(rules);
+    }
+
+    /**
+     * Returns all rules, in the order they were defined.
+     */
+    List<Rule<S>> allRules() {
+        return allRules;
+    }
+
+    /**
+     * Returns the rules that may apply to the {@code line}, in the order
+     * they were defined.
+     */
+    List<Rule<S>> rulesFor(CharSequence line) {
+        if (line.length() == 0) {
+            return rulesWithoutPrefix;
+        }
+        char c = line.charAt(0);
+        if (c < ASCII_LIMIT) {
+            return asciiRules.get(c);
+        }
+        List<Rule<S>> result = nonAsciiRules.get(c);
+        return result != null ? result : rulesWithoutPrefix;
+    }
+
+    /**
+     * Returns the rules without a prefix and the rules whose prefix
+     * starts with {@code firstChar}, in their original order.
+     */
+    private static <S> List<Rule<S>> rulesWithFirstChar(
+            List<Rule<S>> rules, @Nullable Character firstChar) {
+        List<Rule<S>> result = new ArrayList<>();
+        for (Rule<S> rule : rules) {
+            String prefix = rule.requiredPrefix();
+            if (prefix.isEmpty() ||
+                    (firstChar != null && prefix.charAt(0) == firstChar)) {
+                result.add(rule);
+            }
+        }
+        return result;
+    }
+}
@@ -24,30 +24,42 @@
 
 package org.abego.commons.lineprocessing;
 
+import org.eclipse.jdt.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
+import static org.abego.commons.lineprocessing.RuleDispatcher.newRuleDispatcher;
+
 class ScriptBuilderImpl<S> implements LineProcessing.ScriptBuilder<S> {
 
     private final Supplier<S> stateProvider;
     private final List<Rule<S>> ruleList = new ArrayList<>();
+    private int patternMatchingRuleCount = 0;
     private BiConsumer<LineProcessing.Context, S> defaultAction = (c, s) -> {};
     private BiConsumer<LineProcessing.Context, S> endOfTextAction = (c, s) -> {};
+    private @Nullable BinaryOperator<S> mergeStatesFunction = null;
+    private boolean sequentialProcessingRequired = false;
+    private boolean statisticsCollected = false;
+    private boolean inputPipelined = false;
 
     ScriptBuilderImpl(Supplier<S> stateProvider) {
         this.stateProvider = stateProvider;
     }
 
     public void onMatch(BiPredicate<LineProcessing.Context, S> condition, BiConsumer<LineProcessing.Context, S> action) {
-        ruleList.add(new PredicateRule<>(condition, action));
+        ruleList.add(new PredicateRule<>(condition, action, ruleList.size()));
     }
 
     public void onMatch(String regex, BiConsumer<LineProcessing.Context, S> action) {
-        ruleList.add(new PatternMatchingRule<>(Pattern.compile(regex), action));
+        ruleList.add(new PatternMatchingRule<>(
+                Pattern.compile(regex), action,
+                patternMatchingRuleCount++, ruleList.size()));
     }
 
     public void onDefault(BiConsumer<LineProcessing.Context, S> action) {
@@ -58,11 +70,31 @@ class ScriptBuilderImpl<S> implements LineProcessing.ScriptBuilder<S> {
         endOfTextAction = action;
     }
 
+    public void onMergeStates(BinaryOperator<S> mergeFunction) {
+        mergeStatesFunction = mergeFunction;
+    }
+
+    public void requireSequentialProcessing() {
+        sequentialProcessingRequired = true;
+    }
+
+    public void collectStatistics() {
+        statisticsCollected = true;
+    }
+
+    public void pipelineInput() {
+        inputPipelined = true;
+    }
+
     public LineProcessing.Script build() {
         return new ScriptImpl<>(
                 stateProvider,
-                new ArrayList<>(ruleList),
+                newRuleDispatcher(new ArrayList<>(ruleList)),
                 defaultAction,
-                endOfTextAction);
+                endOfTextAction,
+                mergeStatesFunction,
+                sequentialProcessingRequired,
+                statisticsCollected,
+                inputPipelined);
     }
 }
@@ -24,93 +24,253 @@
 
 package org.abego.commons.lineprocessing;
 
-import java.io.BufferedReader;
+import org.eclipse.jdt.annotation.Nullable;
+
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.StringReader;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Supplier;
 
-class ScriptImpl<S> implements LineProcessing.Script {
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
+import static org.abego.commons.lineprocessing.FileChunk.canSplitAtLineFeeds;
+import static org.abego.commons.lineprocessing.FileChunk.splitIntoChunks;
+import static org.abego.commons.lineprocessing.MappedLineSource.newMappedLineSource;
+import static org.abego.commons.lineprocessing.StatisticsImpl.newStatistics;
+
+class ScriptImpl<S> extends AbstractScript {
+    private static final long MIN_CHUNK_SIZE = 1024L * 1024;
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+    /**
+     * The number of chunks per thread when processing in parallel, to
+     * balance the load when chunks need different processing times.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
     private final Supplier<S> stateProvider;
-    private final List<Rule<S>> ruleList;
+    private final RuleDispatcher<S> ruleDispatcher;
     private final BiConsumer<LineProcessing.Context, S> defaultAction;
     private final BiConsumer<LineProcessing.Context, S> endOfTextAction;
+    private final @Nullable BinaryOperator<S> mergeStatesFunction;
+    private final boolean sequentialProcessingRequired;
+    private final StatisticsImpl statistics;
+    private final boolean statisticsCollected;
+    private final boolean inputPipelined;
 
     ScriptImpl(
             Supplier<S> stateProvider,
-            List<Rule<S>> ruleList,
+            RuleDispatcher<S> ruleDispatcher,
             BiConsumer<LineProcessing.Context, S> defaultAction,
-            BiConsumer<LineProcessing.Context, S> endOfTextAction) {
+            BiConsumer<LineProcessing.Context, S> endOfTextAction,
+            @Nullable BinaryOperator<S> mergeStatesFunction,
+            boolean sequentialProcessingRequired,
+            boolean statisticsCollected,
+            boolean inputPipelined) {
 
         this.stateProvider = stateProvider;
-        this.ruleList = ruleList;
+        this.ruleDispatcher = ruleDispatcher;
         this.defaultAction = defaultAction;
         this.endOfTextAction = endOfTextAction;
+        this.mergeStatesFunction = mergeStatesFunction;
+        this.sequentialProcessingRequired = sequentialProcessingRequired;
+        this.statisticsCollected = statisticsCollected;
+        this.inputPipelined = inputPipelined;
+
+        List<String> ruleTexts = new ArrayList<>();
+        for (Rule<S> rule : ruleDispatcher.allRules()) {
+            ruleTexts.add(rule.text());
+        }
+        this.statistics = newStatistics(ruleTexts);
+    }
+
+
+    @Override
+    ScriptRun newRun(@Nullable Path file) {
+        return new RunImpl(newContext(file), stateProvider.get());
     }
 
+    @Override
+    boolean isInputPipelined() {
+        return inputPipelined;
+    }
+
+    private ContextImpl newContext(@Nullable Path file) {
+        ContextImpl context = new ContextImpl();
+        context.setFile(file);
+        if (statisticsCollected) {
+            context.setStatistics(statistics.newRecorder());
+        }
+        return context;
+    }
 
     @Override
-    public void process(String text) {
-        try (BufferedReader reader = new BufferedReader(
-                new StringReader(text))) {
-            process(reader);
+    public void processInParallel(Path file, Charset charset) {
+        long fileSize;
+        try {
+            fileSize = Files.size(file);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        processInParallel(file, charset, chunkSize(fileSize, threadCount), threadCount);
     }
 
-    @Override
-    public void process(BufferedReader reader) {
-        S state = stateProvider.get();
-        ContextImpl context = new ContextImpl();
-        int lineNumber = 0;
-        String line;
-        do {
-            try {
-                line = reader.readLine();
-                if (line != null) {
-                    lineNumber++;
-                    context.setLine(line);
-                    context.setLineNumber(lineNumber);
-                    apply(context, state);
-                }
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
+    /**
+     * Processes the {@code file} in chunks of about {@code chunkSize} bytes,
+     * using up to {@code threadCount} threads.
+     */
+    void processInParallel(Path file, Charset charset, long chunkSize, int threadCount) {
+        BinaryOperator<S> mergeFunction = mergeStatesFunction;
+        if (mergeFunction == null || sequentialProcessingRequired ||
+                !canSplitAtLineFeeds(charset)) {
+            process(file, charset);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<FileChunk> chunks = splitIntoChunks(channel, chunkSize);
+            if (chunks.isEmpty()) {
+                newRun().processEndOfText();
+                return;
+            }
+            List<Integer> chunkIndices = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                chunkIndices.add(i);
+            }
+
+            // The line numbers of a chunk depend on the number of lines in the
+            // chunks before it. So count the lines of all chunks first.
+            int[] lineCounts = new int[chunks.size()];
+            forEachInParallel(chunkIndices, threadCount, i ->
+                    lineCounts[i] = lineCountOfChunk(chunks.get(i), channel));
+            int[] lineNumberOffsets = new int[chunks.size()];
+            for (int i = 1; i < chunks.size(); i++) {
+                lineNumberOffsets[i] = lineNumberOffsets[i - 1] + lineCounts[i - 1];
+            }
+
+            List<RunImpl> runs = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                runs.add(new RunImpl(newContext(file), stateProvider.get()));
+            }
+            forEachInParallel(chunkIndices, threadCount, i ->
+                    processChunk(chunks.get(i), channel, charset,
+                            lineNumberOffsets[i], runs.get(i)));
+
+            S mergedState = runs.get(0).state;
+            for (int i = 1; i < runs.size(); i++) {
+                mergedState = mergeFunction.apply(mergedState, runs.get(i).state);
             }
-        } while (line != null);
-        context.setEndOfTextReached(true);
-        apply(context, state);
+            new RunImpl(runs.get(runs.size() - 1).context, mergedState)
+                    .processEndOfText();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    /**
+     * Processes the {@code files} like {@link AbstractScript} does, unless
+     * a merge function is defined. Then the states of all files are merged,
+     * in the order of the {@code files}, and the `end of text` action is
+     * executed once, with the merged state.
+     * <p>
+     * When a merge function is defined and sequential processing is
+     * required all files are processed one after the other, with a single
+     * state.
+     */
     @Override
-    public void process(InputStream inputStream, Charset charset) {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, charset))) {
-            process(reader);
+    void processFiles(List<Path> files, Charset charset, int maxConcurrency) {
+        BinaryOperator<S> mergeFunction = mergeStatesFunction;
+        if (mergeFunction == null) {
+            super.processFiles(files, charset, maxConcurrency);
+            return;
+        }
+        if (files.isEmpty()) {
+            newRun().processEndOfText();
+            return;
+        }
+
+        if (sequentialProcessingRequired) {
+            RunImpl run = new RunImpl(newContext(null), stateProvider.get());
+            for (Path file : files) {
+                run.context.setFile(file);
+                processLines(run, file, charset);
+            }
+            run.processEndOfText();
+            return;
+        }
+
+        List<RunImpl> runs = new ArrayList<>();
+        for (Path file : files) {
+            runs.add(new RunImpl(newContext(file), stateProvider.get()));
+        }
+        forEachInParallel(largestFirst(files), maxConcurrency, i ->
+                processLines(runs.get(i), files.get(i), charset));
+
+        S mergedState = runs.get(0).state;
+        for (int i = 1; i < runs.size(); i++) {
+            mergedState = mergeFunction.apply(mergedState, runs.get(i).state);
+        }
+        new RunImpl(runs.get(runs.size() - 1).context, mergedState)
+                .processEndOfText();
+    }
+
+    private void processChunk(
+            FileChunk chunk,
+            FileChannel channel,
+            Charset charset,
+            int lineNumberOffset,
+            ScriptRun run) {
+        try {
+            run.processLines(
+                    newMappedLineSource(channel, chunk.start(), chunk.end(), charset),
+                    lineNumberOffset);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    @Override
-    public void process(InputStream inputStream) {
-        process(inputStream, StandardCharsets.UTF_8);
+    private static int lineCountOfChunk(FileChunk chunk, FileChannel channel) {
+        try {
+            return chunk.lineCount(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long chunkSize(long fileSize, int threadCount) {
+        long size = fileSize / ((long) threadCount * CHUNKS_PER_THREAD);
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
     }
 
 
+    @Override
+    public LineProcessing.Statistics statistics() {
+        return statistics.copy();
+    }
+
     private void apply(ContextImpl context, S state) {
         if (context.isEndOfTextReached()) {
             endOfTextAction.accept(context, state);
+            return;
+        }
 
+        StatisticsImpl recorder = context.getStatistics();
+        if (recorder != null) {
+            applyWithStatistics(context, state, recorder);
         } else {
             boolean runDefaultAction = true;
-            for (Rule<S> rule : ruleList) {
+            List<Rule<S>> rules = ruleDispatcher.rulesFor(context.lineChars());
+            //noinspection ForLoopReplaceableByForEach
+            for (int i = 0; i < rules.size(); i++) {
+                Rule<S> rule = rules.get(i);
                 context.setCheckMoreRules(false);
                 if (rule.apply(context, state)) {
                     // found a matching rule, no need to run the default action
@@ -127,4 +287,73 @@ class ScriptImpl<S> implements LineProcessing.Script {
             }
         }
     }
+
+    /**
+     * Same as the rule processing in {@link #apply(ContextImpl, Object)},
+     * but recording statistics.
+     */
+    private void applyWithStatistics(
+            ContextImpl context, S state, StatisticsImpl recorder) {
+        recorder.addLine();
+        boolean runDefaultAction = true;
+        List<Rule<S>> rules = ruleDispatcher.rulesFor(context.lineChars());
+        //noinspection ForLoopReplaceableByForEach
+        for (int i = 0; i < rules.size(); i++) {
+            Rule<S> rule = rules.get(i);
+            context.setCheckMoreRules(false);
+            long startTime = System.nanoTime();
+            boolean matched = rule.test(context, state);
+            long matchEndTime = System.nanoTime();
+            recorder.addAttempt(rule.index(), matched, matchEndTime - startTime);
+            if (matched) {
+                rule.runAction(context, state);
+                recorder.addAction(rule.index(), System.nanoTime() - matchEndTime);
+                runDefaultAction = false;
+                if (!context.getCheckMoreRules()) {
+                    return;
+                }
+                recorder.addMore();
+            }
+        }
+        if (runDefaultAction) {
+            recorder.addDefaultAction();
+            defaultAction.accept(context, state);
+        }
+    }
+
+    /**
+     * A processing of lines by this script, with its own context and state.
+     */
+    private final class RunImpl implements ScriptRun {
+        private final ContextImpl context;
+        private final S state;
+
+        private RunImpl(ContextImpl context, S state) {
+            this.context = context;
+            this.state = state;
+        }
+
+        @Override
+        public void processLine(CharSequence line, int lineNumber) {
+            context.setLine(line);
+            context.setLineNumber(lineNumber);
+            apply(context, state);
+        }
+
+        @Override
+        public void processEndOfText() {
+            context.setEndOfTextReached(true);
+            apply(context, state);
+        }
+
+        @Override
+        public void flush() {
+            StatisticsImpl recorder = context.getStatistics();
+            if (recorder != null) {
+                statistics.add(recorder);
+                // the context may be used again (e.g. when following a file)
+                context.setStatistics(recorder.newRecorder());
+            }
+        }
+    }
 }
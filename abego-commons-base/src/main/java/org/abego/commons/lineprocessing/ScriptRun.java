@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.io.IOException;
+
+/**
+ * A single processing of lines by a Script, using its own state.
+ * <p>
+ * A ScriptRun is not thread-safe.
+ */
+interface ScriptRun {
+
+    /**
+     * Processes the {@code line} with the given {@code lineNumber}.
+     * <p>
+     * The {@code line} is only valid during this call.
+     */
+    void processLine(CharSequence line, int lineNumber);
+
+    /**
+     * Executes the `end of text` action.
+     */
+    void processEndOfText();
+
+    /**
+     * Completes the processing of the lines passed to this run so far, e.g.
+     * by adding the statistics recorded by this run to the Script's
+     * statistics.
+     */
+    void flush();
+
+    /**
+     * Releases the resources used by this run, if any.
+     */
+    default void close() {
+    }
+
+    /**
+     * Processes the lines of the {@code lineSource}, with the first line
+     * having the line number {@code lineNumberOffset + 1}, then flushes this
+     * run and returns the number of lines processed.
+     */
+    default int processLines(LineSource lineSource, int lineNumberOffset)
+            throws IOException {
+        int lineNumber = lineNumberOffset;
+        try {
+            while (lineSource.nextLine()) {
+                lineNumber++;
+                processLine(lineSource.line(), lineNumber);
+            }
+        } finally {
+            flush();
+        }
+        return lineNumber - lineNumberOffset;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Statistics on the processing of lines by a Script.
+ * <p>
+ * During a single processing run the statistics are recorded in an
+ * instance exclusively used by that run (see {@link #newRecorder()}),
+ * without any synchronization. At the end of the run the recorded data is
+ * added to the Script's statistics ({@link #add(StatisticsImpl)}).
+ */
+final class StatisticsImpl implements LineProcessing.Statistics {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final List<String> ruleTexts;
+    private final long[] attemptCounts;
+    private final long[] matchCounts;
+    private final long[] matchNanos;
+    private final long[] actionNanos;
+    private long lineCount = 0;
+    private long defaultActionCount = 0;
+    private long moreCount = 0;
+
+    private StatisticsImpl(List<String> ruleTexts) {
+        this.ruleTexts = ruleTexts;
+        int n = ruleTexts.size();
+        attemptCounts = new long[n];
+        matchCounts = new long[n];
+        matchNanos = new long[n];
+        actionNanos = new long[n];
+    }
+
+    static StatisticsImpl newStatistics(List<String> ruleTexts) {
+        return new StatisticsImpl(Collections.unmodifiableList(new ArrayList<>(ruleTexts)));
+    }
+
+    /**
+     * Returns the statistics of a script combining scripts with the given
+     * {@code statistics}.
+     * <p>
+     * The rules of the combined statistics are the rules of all scripts, in
+     * order. As every script processes the same lines the line count is the
+     * largest line count of the scripts (scripts not collecting statistics
+     * count 0), the other counts are summed up.
+     */
+    static StatisticsImpl newCombinedStatistics(
+            List<? extends LineProcessing.Statistics> statistics) {
+        List<String> ruleTexts = new ArrayList<>();
+        for (LineProcessing.Statistics s : statistics) {
+            for (LineProcessing.RuleStatistics r : s.ruleStatistics()) {
+                ruleTexts.add(r.ruleText());
+            }
+        }
+        StatisticsImpl result = newStatistics(ruleTexts);
+        int i = 0;
+        for (LineProcessing.Statistics s : statistics) {
+            result.lineCount = Math.max(result.lineCount, s.lineCount());
+            result.defaultActionCount += s.defaultActionCount();
+            result.moreCount += s.moreCount();
+            for (LineProcessing.RuleStatistics r : s.ruleStatistics()) {
+                result.attemptCounts[i] = r.attemptCount();
+                result.matchCounts[i] = r.matchCount();
+                result.matchNanos[i] = r.matchNanos();
+                result.actionNanos[i] = r.actionNanos();
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new, empty {@link StatisticsImpl} for the same rules, to
+     * record the statistics of a single processing run.
+     */
+    StatisticsImpl newRecorder() {
+        return new StatisticsImpl(ruleTexts);
+    }
+
+    // --- Recording ---
+
+    void addLine() {
+        lineCount++;
+    }
+
+    void addDefaultAction() {
+        defaultActionCount++;
+    }
+
+    void addMore() {
+        moreCount++;
+    }
+
+    void addAttempt(int ruleIndex, boolean matched, long nanos) {
+        attemptCounts[ruleIndex]++;
+        if (matched) {
+            matchCounts[ruleIndex]++;
+        }
+        matchNanos[ruleIndex] += nanos;
+    }
+
+    void addAction(int ruleIndex, long nanos) {
+        actionNanos[ruleIndex] += nanos;
+    }
+
+    synchronized void add(StatisticsImpl other) {
+        lineCount += other.lineCount;
+        defaultActionCount += other.defaultActionCount;
+        moreCount += other.moreCount;
+        for (int i = 0; i < attemptCounts.length; i++) {
+            attemptCounts[i] += other.attemptCounts[i];
+            matchCounts[i] += other.matchCounts[i];
+            matchNanos[i] += other.matchNanos[i];
+            actionNanos[i] += other.actionNanos[i];
+        }
+    }
+
+    /**
+     * Returns a copy of this statistics, not affected by later changes.
+     */
+    synchronized StatisticsImpl copy() {
+        StatisticsImpl result = newRecorder();
+        result.add(this);
+        return result;
+    }
+
+    // --- Queries ---
+
+    @Override
+    public long lineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public long defaultActionCount() {
+        return defaultActionCount;
+    }
+
+    @Override
+    public long moreCount() {
+        return moreCount;
+    }
+
+    @Override
+    public List<LineProcessing.RuleStatistics> ruleStatistics() {
+        List<LineProcessing.RuleStatistics> result = new ArrayList<>();
+        for (int i = 0; i < ruleTexts.size(); i++) {
+            result.add(new RuleStatisticsImpl(i, ruleTexts.get(i),
+                    attemptCounts[i], matchCounts[i], matchNanos[i], actionNanos[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public String text() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.ROOT,
+                "lines: %d, default actions: %d, more() calls: %d%n", //NON-NLS
+                lineCount, defaultActionCount, moreCount));
+        result.append(String.format(Locale.ROOT,
+                "%4s %12s %12s %12s %12s  %s%n", //NON-NLS
+                "rule", "attempts", "matches", "match [ms]", "action [ms]", "text")); //NON-NLS
+        for (LineProcessing.RuleStatistics r : ruleStatistics()) {
+            result.append(String.format(Locale.ROOT,
+                    "%4d %12d %12d %12.3f %12.3f  %s%n", //NON-NLS
+                    r.ruleIndex(), r.attemptCount(), r.matchCount(),
+                    r.matchNanos() / NANOS_PER_MILLI,
+                    r.actionNanos() / NANOS_PER_MILLI,
+                    r.ruleText()));
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+
+    private static final class RuleStatisticsImpl implements LineProcessing.RuleStatistics {
+        private final int ruleIndex;
+        private final String ruleText;
+        private final long attemptCount;
+        private final long matchCount;
+        private final long matchNanos;
+        private final long actionNanos;
+
+        private RuleStatisticsImpl(
+                int ruleIndex,
+                String ruleText,
+                long attemptCount,
+                long matchCount,
+                long matchNanos,
+                long actionNanos) {
+            this.ruleIndex = ruleIndex;
+            this.ruleText = ruleText;
+            this.attemptCount = attemptCount;
+            this.matchCount = matchCount;
+            this.matchNanos = matchNanos;
+            this.actionNanos = actionNanos;
+        }
+
+        @Override
+        public int ruleIndex() {
+            return ruleIndex;
+        }
+
+        @Override
+        public String ruleText() {
+            return ruleText;
+        }
+
+        @Override
+        public long attemptCount() {
+            return attemptCount;
+        }
+
+        @Override
+        public long matchCount() {
+            return matchCount;
+        }
+
+        @Override
+        public long matchNanos() {
+            return matchNanos;
+        }
+
+        @Override
+        public long actionNanos() {
+            return actionNanos;
+        }
+    }
+}
@@ -27,6 +27,7 @@ package org.abego.commons.progress;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 
 import java.io.PrintStream;
+import java.util.function.LongConsumer;
 
 public final class Progresses {
     Progresses() {
@@ -71,4 +72,28 @@ public final class Progresses {
             PrintStream printStream) {
         return ProgressListenerWithPrintStreamOutput.createProgressListener(printStream);
     }
+
+    /**
+     * Returns a {@link LongConsumer} that updates the {@code progress}
+     * when called with the number of bytes processed so far, e.g. as the
+     * "onBytesCopied" callback of
+     * {@link org.abego.commons.io.InputStreamUtil#copyStream(java.io.InputStream, java.io.OutputStream, LongConsumer)}.
+     * <p>
+     * The byte count is mapped to the range of the {@code progress},
+     * {@code byteCount} bytes corresponding to the maximal value.
+     */
+    public static LongConsumer createByteCountUpdater(
+            ProgressWithRange progress, long byteCount) {
+        int minValue = progress.getMinValue();
+        long range = (long) progress.getMaxValue() - minValue;
+        return bytesProcessed -> {
+            long value = byteCount <= 0
+                    ? range
+                    : Math.min(range, (long) ((double) range * bytesProcessed / byteCount));
+            if (minValue + value > progress.getValue()) {
+                progress.update((int) (minValue + value),
+                        bytesProcessed + " of " + byteCount + " bytes"); //NON-NLS
+            }
+        };
+    }
 }
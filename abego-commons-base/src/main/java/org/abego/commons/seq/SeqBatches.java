@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.seq;
+
+import java.util.Iterator;
+
+import static org.abego.commons.seq.SubSeq.newSubSeq;
+import static org.abego.commons.util.IteratorUsingAccessor.newIteratorUsingAccessor;
+
+/**
+ * The batches of a {@link Seq}, each batch being a {@link SubSeq} view on
+ * the original Seq.
+ */
+@SuppressWarnings("squid:S2160")
+// --> 'Subclasses that add fields should override "equals"'
+// (No need to override "equals" as AbstractSeq implements "equals" in an abstract way using the iterator)
+final class SeqBatches<T> extends AbstractSeq<Seq<T>> {
+    private final Seq<T> seq;
+    private final int batchSize;
+
+    private SeqBatches(Seq<T> seq, int batchSize) {
+        this.seq = seq;
+        this.batchSize = batchSize;
+    }
+
+    static <T> SeqBatches<T> newSeqBatches(Seq<T> seq, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "batchSize must be >= 1, got " + batchSize); //NON-NLS
+        }
+        return new SeqBatches<>(seq, batchSize);
+    }
+
+    @Override
+    public Iterator<Seq<T>> iterator() {
+        return newIteratorUsingAccessor(size(), this::item);
+    }
+
+    @Override
+    public int size() {
+        int n = seq.size();
+        return n / batchSize + (n % batchSize == 0 ? 0 : 1);
+    }
+
+    @Override
+    public Seq<T> item(int index) {
+        int start = index * batchSize;
+        if (index < 0 || start >= seq.size()) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size()); //NON-NLS
+        }
+        return newSubSeq(seq, start, Math.min(start + batchSize, seq.size()));
+    }
+}
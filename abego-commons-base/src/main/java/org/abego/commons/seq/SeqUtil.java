@@ -43,6 +43,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.abego.commons.lang.IterableUtil.isEmpty;
+import static org.abego.commons.seq.SeqBatches.newSeqBatches;
 import static org.abego.commons.seq.SeqForArray.newSeqForArray;
 import static org.abego.commons.seq.SeqForIterable.newSeqForIterable;
 import static org.abego.commons.seq.SeqForList.newSeqForList;
@@ -339,4 +340,20 @@ public final class SeqUtil {
         return newSeq(items.stream().collect(Collectors.toSet()));
     }
 
+    /**
+     * Returns the batches of the given {@code seq}, each batch with
+     * {@code batchSize} items, and the remaining items in the last batch.
+     * <p>
+     * No items are copied: the batches are views of the {@code seq}, and a
+     * batch is only created when it is accessed.
+     * <p>
+     * To process the batches in parallel use
+     * {@link org.abego.commons.lang.ThreadUtil#forEachInParallel(Iterable, int, java.util.function.Consumer)}.
+     *
+     * @throws IllegalArgumentException if {@code batchSize} is less than 1
+     */
+    public static <T> Seq<Seq<T>> batches(Seq<T> seq, int batchSize) {
+        return newSeqBatches(seq, batchSize);
+    }
+
 }
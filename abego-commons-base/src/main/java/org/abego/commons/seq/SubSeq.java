@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.seq;
+
+import java.util.Iterator;
+
+import static org.abego.commons.util.IteratorUsingAccessor.newIteratorUsingAccessor;
+
+/**
+ * A view on a contiguous range of items of another {@link Seq}.
+ */
+@SuppressWarnings("squid:S2160")
+// --> 'Subclasses that add fields should override "equals"'
+// (No need to override "equals" as AbstractSeq implements "equals" in an abstract way using the iterator)
+final class SubSeq<T> extends AbstractSeq<T> implements SeqNonEmpty<T> {
+    private final Seq<T> seq;
+    private final int start;
+    private final int size;
+
+    private SubSeq(Seq<T> seq, int start, int size) {
+        this.seq = seq;
+        this.start = start;
+        this.size = size;
+    }
+
+    static <T> SubSeq<T> newSubSeq(Seq<T> seq, int start, int end) {
+        if (start < 0 || end > seq.size() || start >= end) {
+            throw new IllegalArgumentException(
+                    "Invalid range [" + start + ", " + end + ")"); //NON-NLS
+        }
+        return new SubSeq<>(seq, start, end - start);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return newIteratorUsingAccessor(size, this::item);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T item(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size); //NON-NLS
+        }
+        return seq.item(start + index);
+    }
+}
@@ -25,45 +25,246 @@
 package org.abego.commons.util;
 
 import org.abego.commons.lang.exception.MustNotInstantiateException;
+import org.eclipse.jdt.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Locale;
+import java.util.TimeZone;
 
+import static java.time.temporal.ChronoField.DAY_OF_MONTH;
+import static java.time.temporal.ChronoField.MONTH_OF_YEAR;
+import static java.time.temporal.ChronoField.YEAR_OF_ERA;
+
+/**
+ * Formats dates in ISO style.
+ * <p>
+ * The texts use the default time zone at the time this class is loaded.
+ * <p>
+ * All methods are thread-safe. Every thread caches the texts of the second
+ * it formatted last (and the date text of its day), so formatting many
+ * dates of the same second (as typical for log output) only needs to write
+ * the milliseconds. Only the texts actually requested are created.
+ * <p>
+ * Like {@link GregorianCalendar} dates before the Gregorian calendar
+ * cutover (1582-10-15) use the Julian calendar.
+ * <p>
+ * The methods with an {@link Appendable} parameter append the text to the
+ * {@code appendable}, wrapping any {@link IOException} in an
+ * {@link UncheckedIOException}.
+ */
 public final class DateUtil {
 
-    private final static SimpleDateFormat ISO_DATE_TIME =
-            new SimpleDateFormat("yyyy-MM-dd'T'H:mm:ss", Locale.ROOT);
-    private final static SimpleDateFormat ISO_DATE_TIME_MILLIS =
-            new SimpleDateFormat("yyyy-MM-dd'T'H:mm:ss.SSS", Locale.ROOT);
-    private final static SimpleDateFormat ISO_DATE =
-            new SimpleDateFormat("yyyy-MM-dd", Locale.ROOT);
-    private final static SimpleDateFormat ISO_TIME =
-            new SimpleDateFormat("H:mm:ss", Locale.ROOT);
-    private final static SimpleDateFormat ISO_TIME_MILLIS =
-            new SimpleDateFormat("H:mm:ss.SSS", Locale.ROOT);
+    // same offsets as SimpleDateFormat (ZoneRules differ for historic dates)
+    private final static TimeZone TIME_ZONE = TimeZone.getDefault();
+    private final static long GREGORIAN_CUTOVER_MILLIS =
+            new GregorianCalendar().getGregorianChange().getTime();
+
+    // "yyyy" of SimpleDateFormat: at least 4 digits, no sign
+    private final static DateTimeFormatter ISO_DATE = new DateTimeFormatterBuilder()
+            .appendValue(YEAR_OF_ERA, 4, 19, SignStyle.NORMAL)
+            .appendLiteral('-')
+            .appendValue(MONTH_OF_YEAR, 2)
+            .appendLiteral('-')
+            .appendValue(DAY_OF_MONTH, 2)
+            .toFormatter(Locale.ROOT);
+    private final static DateTimeFormatter ISO_TIME =
+            DateTimeFormatter.ofPattern("H:mm:ss", Locale.ROOT);
+
+    private final static ThreadLocal<SecondTexts> SECOND_TEXTS =
+            ThreadLocal.withInitial(SecondTexts::new);
+
+    /**
+     * The texts of a second, created on demand.
+     * <p>
+     * Every thread has its own instance, so no synchronization is needed.
+     */
+    private static final class SecondTexts {
+        private long epochSecond = Long.MIN_VALUE;
+        private @Nullable LocalDateTime dateTime;
+        private @Nullable LocalDate date;
+        private @Nullable String dateText;
+        private @Nullable String timeText;
+        private @Nullable String dateTimeText;
+        /**
+         * The formats for dates before the Gregorian calendar cutover,
+         * created when needed.
+         */
+        private @Nullable SimpleDateFormat julianDateFormat;
+        private @Nullable SimpleDateFormat julianTimeFormat;
+
+        void setEpochSecond(long epochSecond) {
+            if (epochSecond == this.epochSecond) {
+                return;
+            }
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(
+                    TIME_ZONE.getOffset(epochSecond * 1000) / 1000);
+            LocalDateTime newDateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, offset);
+            LocalDate newDate = newDateTime.toLocalDate();
+            if (!newDate.equals(date)) {
+                date = newDate;
+                dateText = null;
+            }
+            this.epochSecond = epochSecond;
+            dateTime = newDateTime;
+            timeText = null;
+            dateTimeText = null;
+        }
+
+        String dateText() {
+            @Nullable String result = dateText;
+            if (result == null) {
+                result = isJulian()
+                        ? julianDateFormat().format(julianDate())
+                        : ISO_DATE.format(localDateTime());
+                dateText = result;
+            }
+            return result;
+        }
+
+        String timeText() {
+            @Nullable String result = timeText;
+            if (result == null) {
+                result = isJulian()
+                        ? julianTimeFormat().format(julianDate())
+                        : ISO_TIME.format(localDateTime());
+                timeText = result;
+            }
+            return result;
+        }
+
+        String dateTimeText() {
+            @Nullable String result = dateTimeText;
+            if (result == null) {
+                result = dateText() + 'T' + timeText();
+                dateTimeText = result;
+            }
+            return result;
+        }
+
+        private LocalDateTime localDateTime() {
+            @Nullable LocalDateTime result = dateTime;
+            if (result == null) {
+                throw new IllegalStateException("No second set"); //NON-NLS
+            }
+            return result;
+        }
+
+        private boolean isJulian() {
+            return epochSecond * 1000 < GREGORIAN_CUTOVER_MILLIS;
+        }
+
+        private Date julianDate() {
+            return new Date(epochSecond * 1000);
+        }
+
+        private SimpleDateFormat julianDateFormat() {
+            @Nullable SimpleDateFormat result = julianDateFormat;
+            if (result == null) {
+                result = newSimpleDateFormat("yyyy-MM-dd"); //NON-NLS
+                julianDateFormat = result;
+            }
+            return result;
+        }
+
+        private SimpleDateFormat julianTimeFormat() {
+            @Nullable SimpleDateFormat result = julianTimeFormat;
+            if (result == null) {
+                result = newSimpleDateFormat("H:mm:ss"); //NON-NLS
+                julianTimeFormat = result;
+            }
+            return result;
+        }
+
+        private static SimpleDateFormat newSimpleDateFormat(String pattern) {
+            SimpleDateFormat result = new SimpleDateFormat(pattern, Locale.ROOT);
+            result.setTimeZone(TIME_ZONE);
+            return result;
+        }
+    }
 
     DateUtil() {
         throw new MustNotInstantiateException();
     }
 
     public static String isoDateTime(Date date) {
-        return ISO_DATE_TIME.format(date);
+        return secondTexts(date).dateTimeText();
     }
 
     public static String isoDateTimeMillis(Date date) {
-        return ISO_DATE_TIME_MILLIS.format(date);
+        StringBuilder result = new StringBuilder(24);
+        isoDateTimeMillis(result, date);
+        return result.toString();
     }
 
     public static String isoDate(Date date) {
-        return ISO_DATE.format(date);
+        return secondTexts(date).dateText();
     }
 
     public static String isoTime(Date date) {
-        return ISO_TIME.format(date);
+        return secondTexts(date).timeText();
     }
 
     public static String isoTimeMillis(Date date) {
-        return ISO_TIME_MILLIS.format(date);
+        StringBuilder result = new StringBuilder(12);
+        isoTimeMillis(result, date);
+        return result.toString();
+    }
+
+    public static void isoDateTime(Appendable appendable, Date date) {
+        append(appendable, secondTexts(date).dateTimeText());
+    }
+
+    public static void isoDateTimeMillis(Appendable appendable, Date date) {
+        append(appendable, secondTexts(date).dateTimeText());
+        appendMillis(appendable, date);
+    }
+
+    public static void isoDate(Appendable appendable, Date date) {
+        append(appendable, secondTexts(date).dateText());
+    }
+
+    public static void isoTime(Appendable appendable, Date date) {
+        append(appendable, secondTexts(date).timeText());
+    }
+
+    public static void isoTimeMillis(Appendable appendable, Date date) {
+        append(appendable, secondTexts(date).timeText());
+        appendMillis(appendable, date);
+    }
+
+    private static SecondTexts secondTexts(Date date) {
+        SecondTexts texts = SECOND_TEXTS.get();
+        texts.setEpochSecond(Math.floorDiv(date.getTime(), 1000));
+        return texts;
+    }
+
+    private static void append(Appendable appendable, String text) {
+        try {
+            appendable.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendMillis(Appendable appendable, Date date) {
+        int millis = (int) Math.floorMod(date.getTime(), 1000L);
+        try {
+            appendable.append('.')
+                    .append((char) ('0' + millis / 100))
+                    .append((char) ('0' + millis / 10 % 10))
+                    .append((char) ('0' + millis % 10));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -27,16 +27,19 @@ package org.abego.commons.util;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.eclipse.jdt.annotation.Nullable;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import static org.abego.commons.lang.StringUtil.stringOrNull;
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
 
 
 @SuppressWarnings("WeakerAccess")
@@ -123,12 +126,95 @@ public final class ListUtil {
     /**
      * Splits the given list into batches of {@code batchSize} items each, and
      * the remaining items in the last batch.
+     * <p>
+     * The batches are views of the {@code list}, as returned by
+     * {@link #batches(List, int)}.
      */
     public static <T> Collection<List<T>> splitInBatches(List<T> list, int batchSize) {
-        AtomicInteger counter = new AtomicInteger();
-        return list.stream().collect(
-                        Collectors.groupingBy(it -> counter.getAndIncrement() / batchSize))
-                .values();
+        return batches(list, batchSize);
     }
 
+    /**
+     * Returns the batches of the given list, each batch with
+     * {@code batchSize} items, and the remaining items in the last batch.
+     * <p>
+     * No items are copied: the returned list and its batches are views
+     * ({@link List#subList(int, int)}) of the {@code list}, and a batch is
+     * only created when it is accessed. The {@code list} must not be
+     * structurally modified while the batches are used.
+     *
+     * @throws IllegalArgumentException if {@code batchSize} is less than 1
+     */
+    public static <T> List<List<T>> batches(List<T> list, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "batchSize must be >= 1, got " + batchSize); //NON-NLS
+        }
+        return new Batches<>(list, batchSize);
+    }
+
+    // --- Processing ---
+
+    /**
+     * Runs the {@code batchProcessor} for every batch of the {@code list}
+     * (see {@link #batches(List, int)}), processing at most
+     * {@code maxConcurrency} batches at the same time.
+     * <p>
+     * See {@link org.abego.commons.lang.ThreadUtil#forEachInParallel(Iterable, int, Consumer)}
+     * for details.
+     */
+    public static <T> void forEachBatchInParallel(
+            List<T> list,
+            int batchSize,
+            int maxConcurrency,
+            Consumer<? super List<T>> batchProcessor) {
+        forEachInParallel(batches(list, batchSize), maxConcurrency, batchProcessor);
+    }
+
+    /**
+     * Runs the {@code batchProcessor} for every batch of the {@code list}
+     * (see {@link #batches(List, int)}), processing at most
+     * {@code maxConcurrency} batches at the same time, using the given
+     * {@code executor}.
+     * <p>
+     * See {@link org.abego.commons.lang.ThreadUtil#forEachInParallel(Iterable, int, Executor, Consumer)}
+     * for details.
+     */
+    public static <T> void forEachBatchInParallel(
+            List<T> list,
+            int batchSize,
+            int maxConcurrency,
+            Executor executor,
+            Consumer<? super List<T>> batchProcessor) {
+        forEachInParallel(
+                batches(list, batchSize), maxConcurrency, executor, batchProcessor);
+    }
+
+    private static final class Batches<T> extends AbstractList<List<T>>
+            implements RandomAccess {
+        private final List<T> list;
+        private final int batchSize;
+
+        private Batches(List<T> list, int batchSize) {
+            this.list = list;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public List<T> get(int index) {
+            int size = size();
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(
+                        "Index: " + index + ", Size: " + size); //NON-NLS
+            }
+            int start = index * batchSize;
+            return list.subList(start, Math.min(start + batchSize, list.size()));
+        }
+
+        @Override
+        public int size() {
+            int n = list.size();
+            return n / batchSize + (n % batchSize == 0 ? 0 : 1);
+        }
+    }
 }
@@ -28,17 +28,30 @@ import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.eclipse.jdt.annotation.Nullable;
 
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class LocaleUtil {
 
     public static final Locale DEFAULT_LOCALE = Locale.US;
 
-    private static final Pattern LOWER_UPPER_CASE_BOUNDARY_OR_NON_DIGIT_OR_LETTER_SEQUENCE =
-            Pattern.compile("(?<=[\\p{javaLowerCase}0-9])(?=[\\p{javaUpperCase}])|([^0-9\\p{javaLowerCase}\\p{javaUpperCase}]+)");
-    private static final Pattern DIGIT_OR_LETTER_SEQUENCE =
-            Pattern.compile("[0-9\\p{javaLowerCase}\\p{javaUpperCase}]+");
+    // Character classes used for the "cased" methods. Only the ASCII digits
+    // are "digits", letters that are neither lowercase nor uppercase (like
+    // titlecase letters) are "other" characters.
+    private static final byte OTHER = 0;
+    private static final byte LOWERCASE_OR_DIGIT = 1;
+    private static final byte UPPERCASE = 2;
+    private static final byte[] ASCII_CHARACTER_CLASSES = new byte[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            ASCII_CHARACTER_CLASSES[c] = LOWERCASE_OR_DIGIT;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII_CHARACTER_CLASSES[c] = LOWERCASE_OR_DIGIT;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            ASCII_CHARACTER_CLASSES[c] = UPPERCASE;
+        }
+    }
 
     LocaleUtil() {
         throw new MustNotInstantiateException();
@@ -55,15 +68,35 @@ public final class LocaleUtil {
      * @param locale (Default: DEFAULT_LOCALE)
      */
     public static String camelCased(String s, Locale locale) {
-        StringBuilder result = new StringBuilder();
-        Matcher m = DIGIT_OR_LETTER_SEQUENCE.matcher(s);
-        while (m.find()) {
-            String word = m.group();
-            String firstChar = word.substring(0, 1);
-            result.append(result.length() > 0
-                    ? firstChar.toUpperCase(locale)
-                    : firstChar.toLowerCase(locale));
-            result.append(word.substring(1));
+        boolean asciiCaseConversion = hasASCIICaseConversion(locale);
+        StringBuilder result = new StringBuilder(s.length());
+        boolean inWord = false;
+        int i = 0;
+        while (i < s.length()) {
+            int codePoint = s.codePointAt(i);
+            int charCount = Character.charCount(codePoint);
+            if (characterClass(codePoint) == OTHER) {
+                inWord = false;
+            } else if (inWord) {
+                result.appendCodePoint(codePoint);
+            } else {
+                inWord = true;
+                boolean toUpperCase = result.length() > 0;
+                if (asciiCaseConversion && codePoint < 128) {
+                    result.append(toUpperCase
+                            ? toASCIIUpperCase((char) codePoint)
+                            : toASCIILowerCase((char) codePoint));
+                } else if (charCount == 1) {
+                    String firstChar = String.valueOf((char) codePoint);
+                    result.append(toUpperCase
+                            ? firstChar.toUpperCase(locale)
+                            : firstChar.toLowerCase(locale));
+                } else {
+                    // the case of a single surrogate char does not change
+                    result.appendCodePoint(codePoint);
+                }
+            }
+            i += charCount;
         }
         return result.toString();
     }
@@ -86,21 +119,93 @@ public final class LocaleUtil {
      * @param locale (default DEFAULT_LOCALE)
      */
     public static String dashCased(String string, Locale locale) {
-        return casedStringHelper(string, "-").toLowerCase(locale);
+        return casedString(string, '-', false, locale);
     }
 
     public static String snakeCased(String string, Locale locale) {
-        return casedStringHelper(string, "_").toLowerCase(locale);
+        return casedString(string, '_', false, locale);
     }
 
     public static String snakeUpperCased(String string, Locale locale) {
-        return casedStringHelper(string, "_").toUpperCase(locale);
+        return casedString(string, '_', true, locale);
     }
 
-    private static String casedStringHelper(String string, String separator) {
-        return LOWER_UPPER_CASE_BOUNDARY_OR_NON_DIGIT_OR_LETTER_SEQUENCE.
-                matcher(string).replaceAll(separator);
+    /**
+     * Return the {@code string} with a {@code separator} inserted between a
+     * lowercase character (or digit) and an uppercase character, and every
+     * sequence of other characters replaced by a {@code separator}, converted
+     * to upper or lower case.
+     */
+    private static String casedString(
+            String string, char separator, boolean upperCase, Locale locale) {
+        boolean asciiCaseConversion = hasASCIICaseConversion(locale);
+        boolean allASCII = true;
+        StringBuilder result = new StringBuilder(string.length() + 8);
+        // at the start neither insert a separator before an uppercase
+        // character nor skip a separator for other characters
+        int previousClass = UPPERCASE;
+        int i = 0;
+        while (i < string.length()) {
+            int codePoint = string.codePointAt(i);
+            int characterClass = characterClass(codePoint);
+            if (characterClass == OTHER) {
+                if (previousClass != OTHER) {
+                    result.append(separator);
+                }
+            } else {
+                if (characterClass == UPPERCASE && previousClass == LOWERCASE_OR_DIGIT) {
+                    result.append(separator);
+                }
+                if (codePoint < 128 && asciiCaseConversion) {
+                    // case conversions of ASCII characters do not depend on
+                    // the context, so we can already convert them here
+                    result.append(upperCase
+                            ? toASCIIUpperCase((char) codePoint)
+                            : toASCIILowerCase((char) codePoint));
+                } else {
+                    allASCII = false;
+                    result.appendCodePoint(codePoint);
+                }
+            }
+            previousClass = characterClass;
+            i += Character.charCount(codePoint);
+        }
+        String text = result.toString();
+        if (allASCII) {
+            return text;
+        }
+        // the case conversion of the other characters may depend on the
+        // locale and the context (like the final sigma in Greek)
+        return upperCase ? text.toUpperCase(locale) : text.toLowerCase(locale);
     }
 
+    private static int characterClass(int codePoint) {
+        if (codePoint < 128) {
+            return ASCII_CHARACTER_CLASSES[codePoint];
+        }
+        if (Character.isLowerCase(codePoint)) {
+            return LOWERCASE_OR_DIGIT;
+        }
+        return Character.isUpperCase(codePoint) ? UPPERCASE : OTHER;
+    }
 
+    /**
+     * Return {@code true} when the case conversion of ASCII characters in
+     * the {@code locale} is the plain ASCII one, i.e. does not depend on
+     * the locale or the context.
+     */
+    private static boolean hasASCIICaseConversion(Locale locale) {
+        String language = locale.getLanguage();
+        return !language.equals("tr") //NON-NLS
+                && !language.equals("az") //NON-NLS
+                && !language.equals("lt"); //NON-NLS
+    }
+
+    private static char toASCIIUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    private static char toASCIILowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
 }
@@ -95,8 +95,15 @@ import static org.abego.commons.util.PropertiesUtil.workingDirectory;
  * (*) The config directory {@code `.config/abego.org/`} and the name of the
  * shared group {@code `abego`} can be customized when using the factory
  * method {@link #newPropertiesGroup(String, String, String)}.
+ * <p>
+ * A Properties group created with {@link #newReloadingPropertiesGroup(String)}
+ * (or {@link #newReloadingPropertiesGroup(String, String, String)}) watches
+ * the directories of its Properties files and picks up changes to the files
+ * automatically. Only the changed file is read again. Readers always see a
+ * consistent snapshot of the Properties, without locking. Call
+ * {@link #close()} to stop watching.
  */
-public final class PropertiesGroup {
+public final class PropertiesGroup implements AutoCloseable {
     private static final String PROPERTIES_FILE_EXTENSION = ".properties";
     @SuppressWarnings("DuplicateStringLiteralInspection")
     private static final String SHARED_GROUP = "abego"; //NON-NLS
@@ -107,34 +114,85 @@ public final class PropertiesGroup {
     private final String configDirectory;
     @Nullable
     private Properties properties;
+    @Nullable
+    private final PropertiesGroupWatcher watcher;
 
     private PropertiesGroup(
-            String groupName, String sharedGroupName, String configDirectory) {
-        //noinspection CallToSuspiciousStringMethod
-        if (groupName.equals(sharedGroupName)) {
-            throw new IllegalArgumentException(
-                    "`" + sharedGroupName + "` is the shared name and must not be used as a groupName.");
-        }
+            String groupName,
+            String sharedGroupName,
+            String configDirectory,
+            @Nullable PropertiesGroupWatcher watcher) {
+        checkGroupName(groupName, sharedGroupName);
 
         this.groupName = groupName;
         this.sharedGroupName = sharedGroupName;
         this.configDirectory = configDirectory;
+        this.watcher = watcher;
     }
 
     public static PropertiesGroup newPropertiesGroup(
             String groupName, String sharedGroupName, String configDirectory) {
-        return new PropertiesGroup(groupName, sharedGroupName, configDirectory);
+        return new PropertiesGroup(groupName, sharedGroupName, configDirectory, null);
     }
 
     public static PropertiesGroup newPropertiesGroup(String groupName) {
-        return new PropertiesGroup(groupName, SHARED_GROUP, CONFIG_DIRECTORY);
+        return newPropertiesGroup(groupName, SHARED_GROUP, CONFIG_DIRECTORY);
+    }
+
+    /**
+     * Returns a Properties group that reloads its Properties when one of
+     * its Properties files changes.
+     * <p>
+     * Only directories existing when the group is created are watched.
+     * Call {@link #close()} when the group is no longer used.
+     */
+    public static PropertiesGroup newReloadingPropertiesGroup(
+            String groupName, String sharedGroupName, String configDirectory) {
+        return newReloadingPropertiesGroup(groupName, sharedGroupName,
+                configDirectory, workingDirectory(), homeDirectory());
+    }
+
+    /**
+     * As {@link #newReloadingPropertiesGroup(String, String, String)}, using
+     * the default shared group name and config directory.
+     */
+    public static PropertiesGroup newReloadingPropertiesGroup(String groupName) {
+        return newReloadingPropertiesGroup(
+                groupName, SHARED_GROUP, CONFIG_DIRECTORY);
+    }
+
+    static PropertiesGroup newReloadingPropertiesGroup(
+            String groupName,
+            String sharedGroupName,
+            String configDirectory,
+            File workingDirectory,
+            File homeDirectory) {
+        checkGroupName(groupName, sharedGroupName);
+
+        PropertiesGroupWatcher watcher =
+                PropertiesGroupWatcher.newPropertiesGroupWatcher(
+                        propertiesGroupFilesInReversedLookupOrder(
+                                groupName, sharedGroupName, configDirectory,
+                                workingDirectory, homeDirectory));
+        return new PropertiesGroup(
+                groupName, sharedGroupName, configDirectory, watcher);
+    }
+
+    private static void checkGroupName(String groupName, String sharedGroupName) {
+        //noinspection CallToSuspiciousStringMethod
+        if (groupName.equals(sharedGroupName)) {
+            throw new IllegalArgumentException(
+                    "`" + sharedGroupName + "` is the shared name and must not be used as a groupName.");
+        }
     }
 
     private static Properties readPropertiesGroup(
             String groupName, String sharedGroupName, String configDirectory) {
         try {
             Properties result = readProperties(
-                    propertiesGroupFilesInReversedLookupOrder(groupName, sharedGroupName, configDirectory));
+                    propertiesGroupFilesInReversedLookupOrder(
+                            groupName, sharedGroupName, configDirectory,
+                            workingDirectory(), homeDirectory()));
             addProperties(result, System.getProperties());
             return result;
         } catch (IOException e) {
@@ -154,10 +212,12 @@ public final class PropertiesGroup {
      * from the later ones in the list. (See {@link PropertiesIOUtil#readProperties(File...)}
      */
     private static File[] propertiesGroupFilesInReversedLookupOrder(
-            String groupName, String sharedGroupName, String configDirectory) {
-        File workDir = workingDirectory();
-        File homeDir = homeDirectory();
-        File configDir = new File(homeDirectory(), configDirectory);
+            String groupName,
+            String sharedGroupName,
+            String configDirectory,
+            File workDir,
+            File homeDir) {
+        File configDir = new File(homeDir, configDirectory);
         //noinspection StringConcatenation
         String fileName = groupName + PROPERTIES_FILE_EXTENSION;
         //noinspection StringConcatenation
@@ -182,7 +242,17 @@ public final class PropertiesGroup {
         };
     }
 
+    /**
+     * Returns the Properties of the group.
+     * <p>
+     * The returned object must not be modified. For a reloading group
+     * it is a snapshot, i.e. later changes to the Properties files are not
+     * reflected in the returned object.
+     */
     public Properties getProperties() {
+        if (watcher != null) {
+            return watcher.getProperties();
+        }
         if (properties == null) {
             properties = readPropertiesGroup(groupName, sharedGroupName, configDirectory);
         }
@@ -197,4 +267,15 @@ public final class PropertiesGroup {
     public String getProperty(String key, String defaultValue) {
         return getProperties().getProperty(key, defaultValue);
     }
+
+    /**
+     * Stops watching the Properties files of a reloading group.
+     * Does nothing for other groups.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.util;
+
+import org.abego.commons.io.PropertiesIOUtil;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the Properties files of a {@link PropertiesGroup} and rebuilds
+ * the group's Properties when one of the files changes.
+ * <p>
+ * The Properties of every file are kept separately, so a change only
+ * re-reads the affected file before the (small) Properties are merged again.
+ * Readers access an immutable snapshot through a volatile field, without
+ * locking.
+ * <p>
+ * When a file cannot be read (e.g. because it is locked while being
+ * written) the file's previous Properties are kept, i.e. readers never see
+ * partially read Properties. The final write of the file triggers another
+ * reload.
+ * <p>
+ * Only directories existing when the watcher is created are watched.
+ */
+final class PropertiesGroupWatcher implements AutoCloseable {
+    /**
+     * Loads the Properties of a file.
+     */
+    @FunctionalInterface
+    interface PropertiesLoader {
+        void load(Properties properties, File file) throws IOException;
+    }
+
+    private final File[] filesInReversedLookupOrder;
+    private final PropertiesLoader propertiesLoader;
+    private final Properties[] fileProperties;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Thread watchThread;
+    /**
+     * The merged Properties, never modified after publication.
+     */
+    private volatile Properties properties;
+
+    private PropertiesGroupWatcher(
+            File[] filesInReversedLookupOrder, PropertiesLoader propertiesLoader) {
+        this.filesInReversedLookupOrder = filesInReversedLookupOrder;
+        this.propertiesLoader = propertiesLoader;
+        this.fileProperties = new Properties[filesInReversedLookupOrder.length];
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (File file : filesInReversedLookupOrder) {
+                Path directory = file.getAbsoluteFile().toPath().getParent();
+                if (Files.isDirectory(directory) &&
+                        !watchedDirectories.containsValue(directory)) {
+                    WatchKey key = directory.register(
+                            watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    watchedDirectories.put(key, directory);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // read the files after registering the watches, so no change
+        // can get lost.
+        for (int i = 0; i < fileProperties.length; i++) {
+            fileProperties[i] = new Properties();
+            reloadFile(i);
+        }
+        properties = mergedProperties();
+
+        watchThread = new Thread(this::watch, "PropertiesGroupWatcher"); //NON-NLS
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    static PropertiesGroupWatcher newPropertiesGroupWatcher(
+            File[] filesInReversedLookupOrder) {
+        return newPropertiesGroupWatcher(
+                filesInReversedLookupOrder, PropertiesGroupWatcher::loadProperties);
+    }
+
+    static PropertiesGroupWatcher newPropertiesGroupWatcher(
+            File[] filesInReversedLookupOrder, PropertiesLoader propertiesLoader) {
+        return new PropertiesGroupWatcher(filesInReversedLookupOrder, propertiesLoader);
+    }
+
+    Properties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == OVERFLOW
+                            ? reloadAllFiles()
+                            : reloadFile(directory.resolve((Path) event.context()));
+                }
+                key.reset();
+                if (changed) {
+                    properties = mergedProperties();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // the watcher was closed
+        }
+    }
+
+    private boolean reloadAllFiles() {
+        boolean result = false;
+        for (int i = 0; i < fileProperties.length; i++) {
+            result |= reloadFile(i);
+        }
+        return result;
+    }
+
+    /**
+     * Re-reads the Properties file {@code path} when it is one of the
+     * group's files and returns {@code true} when its Properties changed.
+     */
+    private boolean reloadFile(Path path) {
+        boolean result = false;
+        for (int i = 0; i < fileProperties.length; i++) {
+            if (filesInReversedLookupOrder[i].getAbsoluteFile().toPath().equals(path)) {
+                result |= reloadFile(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Re-reads the i-th Properties file and returns {@code true} when its
+     * Properties changed.
+     * <p>
+     * When the file cannot be read its previous Properties are kept.
+     */
+    private boolean reloadFile(int i) {
+        @Nullable Properties newProperties = readFileProperties(filesInReversedLookupOrder[i]);
+        if (newProperties == null || newProperties.equals(fileProperties[i])) {
+            return false;
+        }
+        fileProperties[i] = newProperties;
+        return true;
+    }
+
+    private Properties mergedProperties() {
+        Properties result = new Properties();
+        for (Properties p : fileProperties) {
+            PropertiesIOUtil.addProperties(result, p);
+        }
+        PropertiesIOUtil.addProperties(result, System.getProperties());
+        return result;
+    }
+
+    /**
+     * Returns the Properties of the {@code file}, or {@code null} when the
+     * file could not be read.
+     */
+    private @Nullable Properties readFileProperties(File file) {
+        Properties result = new Properties();
+        try {
+            propertiesLoader.load(result, file);
+        } catch (NoSuchFileException e) {
+            // a missing file has no properties
+            return new Properties();
+        } catch (IOException e) {
+            // the file may be in the middle of being written. The final
+            // write will trigger another reload.
+            return null;
+        }
+        return result;
+    }
+
+    private static void loadProperties(Properties properties, File file)
+            throws IOException {
+        try (Reader reader = Files.newBufferedReader(
+                file.toPath(), StandardCharsets.ISO_8859_1)) {
+            properties.load(reader);
+        }
+    }
+}
@@ -25,6 +25,7 @@
 package org.abego.commons.var;
 
 import org.abego.commons.io.FileUtil;
+import org.abego.commons.io.TextFileCache;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -67,6 +68,15 @@ public final class VarUtil {
         return newTextFileVar(file, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Returns a {@link Var} for the text of the {@code file}, reading the
+     * text through the {@code textFileCache}.
+     */
+    public static Var<String> newTextFileVar(
+            File file, Charset charset, TextFileCache textFileCache) {
+        return new CachedTextFileVar(file, charset, textFileCache);
+    }
+
     private static UnsupportedOperationException newVarNotEditableException() {
         return new UnsupportedOperationException("Var not editable"); //NON-NLS
     }
@@ -157,8 +167,8 @@ public final class VarUtil {
 
     private static class TextFileVar implements Var<String> {
 
-        private final File file;
-        private final Charset charset;
+        final File file;
+        final Charset charset;
 
         public TextFileVar(File file, Charset charset) {
             this.file = file;
@@ -175,4 +185,25 @@ public final class VarUtil {
             FileUtil.writeText(file, value, charset);
         }
     }
+
+    private static class CachedTextFileVar extends TextFileVar {
+        private final TextFileCache textFileCache;
+
+        public CachedTextFileVar(
+                File file, Charset charset, TextFileCache textFileCache) {
+            super(file, charset);
+            this.textFileCache = textFileCache;
+        }
+
+        @Override
+        public String get() {
+            return textFileCache.textOf(file, charset);
+        }
+
+        @Override
+        public void set(String value) {
+            super.set(value);
+            textFileCache.invalidate(file);
+        }
+    }
 }
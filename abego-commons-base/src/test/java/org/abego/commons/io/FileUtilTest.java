@@ -28,22 +28,35 @@ import org.abego.commons.TestData;
 import org.abego.commons.lang.ClassUtil;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.abego.commons.net.URLUtil;
+import org.abego.commons.progress.ProgressWithRange;
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
 
 import static org.abego.commons.TestData.EMPTY_TEXT;
 import static org.abego.commons.TestData.MISSING_RESOURCE_NAME;
@@ -74,11 +87,13 @@ import static org.abego.commons.io.FileUtil.tempDirectoryForRun;
 import static org.abego.commons.io.FileUtil.tempFileForRun;
 import static org.abego.commons.io.FileUtil.tempFileForRunFromResource;
 import static org.abego.commons.io.FileUtil.textOf;
+import static org.abego.commons.io.FileUtil.textOfCompressed;
 import static org.abego.commons.io.FileUtil.textOfFile;
 import static org.abego.commons.io.FileUtil.textOfFileIfExisting;
 import static org.abego.commons.io.FileUtil.toFile;
 import static org.abego.commons.io.FileUtil.toURL;
 import static org.abego.commons.io.FileUtil.writeText;
+import static org.abego.commons.io.FileUtil.writeTextCompressed;
 import static org.abego.commons.io.WriterUtil.write;
 import static org.abego.commons.lang.ObjectUtil.ignore;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -977,6 +992,43 @@ class FileUtilTest {
         assertTrue(new File(tempDir, "org/abego/commons/Main.class").isFile());
     }
 
+    @Test
+    void copyResourcesDeepJarPrefix(@TempDir File tempDir) throws IOException {
+        File jar = new File(tempDir, "fixtures.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("fixtures/"));
+            out.closeEntry();
+            // no entry for "fixtures/sub/", the directory is created anyway
+            for (String name : new String[]{
+                    "fixtures/a.txt", "fixtures/sub/b.txt", "other/c.txt"}) {
+                out.putNextEntry(new JarEntry(name));
+                out.write(("content of " + name).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        URL url = new URL("jar:" + jar.toURI().toURL() + "!/fixtures/");
+        File target = new File(tempDir, "target");
+
+        FileUtil.copyResourcesDeep(url, target);
+
+        File a = new File(target, "a.txt");
+        File b = new File(target, "sub/b.txt");
+        assertEquals("content of fixtures/a.txt", textOf(a));
+        assertEquals("content of fixtures/sub/b.txt", textOf(b));
+        assertFalse(new File(target, "c.txt").exists());
+        assertFalse(new File(target, "other").exists());
+
+        // unchanged files are skipped, changed ones extracted again
+        writeText(a, "changed");
+        long oldTime = b.lastModified() - 60_000;
+        assertTrue(b.setLastModified(oldTime));
+
+        FileUtil.copyResourcesDeep(url, target);
+
+        assertEquals("content of fixtures/a.txt", textOf(a));
+        assertEquals(oldTime, b.lastModified());
+    }
+
     @Test
     void emptyFile(@TempDir File tempDir) {
         File file = new File(tempDir, "file.txt");
@@ -994,4 +1046,378 @@ class FileUtilTest {
         assertTrue(new File(tempDir, "foo/bar").isDirectory());
     }
 
+    @Test
+    void copyFilesInDirectoryDeep_withOptions() {
+        File source = tempDirectoryForRun();
+        File target = tempDirectoryForRun();
+        writeText(new File(source, "a.txt"), "a");
+        writeText(new File(FileUtil.mkdirs(source, "sub"), "b.txt"), "b");
+        StringBuilder bigText = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            bigText.append("line ").append(i).append("\n");
+        }
+        writeText(new File(source, "big.txt"), bigText.toString());
+        List<ProgressWithRange.Event> events = new ArrayList<>();
+
+        CopyFilesResult result = FileUtil.copyFilesInDirectoryDeep(source, target,
+                new CopyFilesOptions() {
+                    @Override
+                    public ProgressWithRange.Listener getProgressListener() {
+                        return events::add;
+                    }
+                });
+
+        assertEquals(3, result.getCopiedFileCount());
+        assertEquals(0, result.getSkippedFileCount());
+        assertEquals("a", textOf(new File(target, "a.txt")));
+        assertEquals("b", textOf(new File(target, "sub/b.txt")));
+        assertEquals(bigText.toString(), textOf(new File(target, "big.txt")));
+        assertTrue(events.get(events.size() - 1).isLastEvent());
+        assertEquals(3, events.get(events.size() - 1).getValue());
+    }
+
+    @Test
+    void copyFilesInDirectoryDeep_incremental() {
+        File source = tempDirectoryForRun();
+        File target = tempDirectoryForRun();
+        writeText(new File(source, "a.txt"), "a");
+        writeText(new File(source, "b.txt"), "b");
+        writeText(new File(FileUtil.mkdirs(target, "stale"), "c.txt"), "c");
+        writeText(new File(target, "d.txt"), "d");
+        CopyFilesOptions sizeAndTime = new CopyFilesOptions() {
+            @Override
+            public UnchangedFileDetection getUnchangedFileDetection() {
+                return UnchangedFileDetection.SIZE_AND_LAST_MODIFIED;
+            }
+        };
+        FileUtil.copyFilesInDirectoryDeep(source, target, sizeAndTime);
+        writeText(new File(source, "b.txt"), "bb");
+
+        CopyFilesResult result = FileUtil.copyFilesInDirectoryDeep(
+                source, target, sizeAndTime);
+
+        assertEquals(1, result.getCopiedFileCount());
+        assertEquals(1, result.getSkippedFileCount());
+        assertEquals("bb", textOf(new File(target, "b.txt")));
+        assertTrue(new File(target, "d.txt").exists());
+
+        writeText(new File(target, "a.txt"), "x");
+        result = FileUtil.copyFilesInDirectoryDeep(source, target,
+                new CopyFilesOptions() {
+                    @Override
+                    public UnchangedFileDetection getUnchangedFileDetection() {
+                        return UnchangedFileDetection.CONTENT;
+                    }
+
+                    @Override
+                    public boolean getDeleteStaleFiles() {
+                        return true;
+                    }
+                });
+
+        assertEquals(1, result.getCopiedFileCount());
+        assertEquals(1, result.getSkippedFileCount());
+        // stale: file "stale/c.txt" (in stale directory "stale"), file "d.txt"
+        assertEquals(2, result.getDeletedFileCount());
+        assertEquals("a", textOf(new File(target, "a.txt")));
+        assertFalse(new File(target, "stale").exists());
+        assertFalse(new File(target, "d.txt").exists());
+    }
+
+    @Test
+    void pathsInDirectoryAndDeeper() {
+        File dir = tempDirectoryForRun();
+        writeText(new File(dir, "a.txt"), "a");
+        writeText(new File(FileUtil.mkdirs(dir, "sub"), "b.txt"), "b");
+        writeText(new File(FileUtil.mkdirs(dir, "skipped"), "c.txt"), "c");
+        writeText(new File(dir, "d.log"), "d");
+
+        List<String> paths = FileUtil.pathsInDirectoryAndDeeper(dir.toPath(),
+                        (p, a) -> a.isRegularFile() && p.toString().endsWith(".txt"),
+                        d -> !d.getFileName().toString().equals("skipped"),
+                        false)
+                .map(p -> dir.toPath().relativize(p).toString())
+                .sorted()
+                .collect(Collectors.toList());
+
+        assertEquals("[a.txt, sub" + File.separator + "b.txt]", paths.toString());
+        assertEquals(6, FileUtil.pathsInDirectoryAndDeeper(
+                dir.toPath(), (p, a) -> true).count());
+    }
+
+    @Test
+    void pathsInDirectoryAndDeeper_parallel() {
+        File dir = tempDirectoryForRun();
+        int expectedCount = 0;
+        for (int i = 0; i < 10; i++) {
+            File sub = FileUtil.mkdirs(dir, "d" + i);
+            for (int j = 0; j < 10; j++) {
+                File subSub = FileUtil.mkdirs(sub, "e" + j);
+                for (int k = 0; k <= i * 10; k++) {
+                    writeText(new File(subSub, "f" + k), "x");
+                    expectedCount++;
+                }
+            }
+        }
+
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        BiPredicate<Path, BasicFileAttributes> selector = (p, a) -> {
+            threads.add(Thread.currentThread());
+            return a.isRegularFile();
+        };
+
+        long count = FileUtil.pathsInDirectoryAndDeeper(
+                        dir.toPath(), selector, d -> true, true)
+                .count();
+        long distinctCount = FileUtil.pathsInDirectoryAndDeeper(
+                        dir.toPath(), selector, d -> true, true)
+                .distinct()
+                .count();
+
+        assertEquals(expectedCount, count);
+        assertEquals(expectedCount, distinctCount);
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    void writeFileIfOutdated() {
+        File dir = tempDirectoryForRun();
+        File dependency = new File(dir, "dep.txt");
+        File target = new File(dir, "target.txt");
+        writeText(dependency, "foo");
+        StringBuilder log = new StringBuilder();
+        Consumer<File> writeFile = f -> {
+            log.append("write ").append(f.getName()).append("\n");
+            writeText(f, textOf(dependency));
+        };
+        Runnable onUpToDate = () -> log.append("up-to-date\n");
+        File[] dependencies = {dependency};
+
+        FileUtil.writeFileIfOutdated(target, dependencies, writeFile, onUpToDate);
+        FileUtil.writeFileIfOutdated(target, dependencies, writeFile, onUpToDate);
+        // touching the dependency without changing its content -> up-to-date
+        assertTrue(dependency.setLastModified(dependency.lastModified() - 10000));
+        FileUtil.writeFileIfOutdated(target, dependencies, writeFile, onUpToDate);
+        // changing the content -> outdated
+        writeText(dependency, "bar");
+        FileUtil.writeFileIfOutdated(target, dependencies, writeFile, onUpToDate);
+        // missing target -> outdated
+        FileUtil.deleteFile(target);
+        FileUtil.writeFileIfOutdated(target, dependencies, writeFile, onUpToDate);
+
+        assertEquals("write target.txt\n" +
+                "up-to-date\n" +
+                "up-to-date\n" +
+                "write target.txt\n" +
+                "write target.txt\n", log.toString());
+        assertEquals("bar", textOf(target));
+        assertTrue(new File(dir, ".buildcache").exists());
+    }
+
+    @Test
+    void writeFileIfOutdated_racyDependency() {
+        File dir = tempDirectoryForRun();
+        File dependency = new File(dir, "dep.txt");
+        File oldDependency = new File(dir, "old.txt");
+        File target = new File(dir, "target.txt");
+        writeText(dependency, "foo");
+        writeText(oldDependency, "old");
+        StringBuilder log = new StringBuilder();
+        Consumer<File> writeFile = f -> {
+            log.append("write\n");
+            writeText(f, textOf(dependency));
+        };
+        Runnable onUpToDate = () -> log.append("up-to-date\n");
+
+        FileUtil.writeFileIfOutdated(target, new File[]{dependency, oldDependency},
+                writeFile, onUpToDate);
+        // a new run, not using "old.txt" any more
+        BuildCache.forgetBuildCaches();
+        FileUtil.writeFileIfOutdated(target, new File[]{dependency},
+                writeFile, onUpToDate);
+        // change the content, but keep size and last modified time, as
+        // when modified again within the file system's time granularity
+        long lastModified = dependency.lastModified();
+        writeText(dependency, "bar");
+        assertTrue(dependency.setLastModified(lastModified));
+        FileUtil.writeFileIfOutdated(target, new File[]{dependency},
+                writeFile, onUpToDate);
+
+        assertEquals("write\nwrite\nwrite\n", log.toString());
+        assertEquals("bar", textOf(target));
+        // the digest of the file no longer used is pruned from the index
+        String index = textOf(new File(dir, ".buildcache"));
+        assertTrue(index.contains("dep.txt"));
+        assertFalse(index.contains("old.txt"));
+    }
+
+    @Test
+    void writeFilesIfOutdated() {
+        File dir = tempDirectoryForRun();
+        File dependency1 = new File(dir, "dep1.txt");
+        File dependency2 = new File(dir, "dep2.txt");
+        File target1 = new File(dir, "target1.txt");
+        File target2 = new File(dir, "target2.txt");
+        writeText(dependency1, "foo");
+        writeText(dependency2, "bar");
+        File[] targets = {target1, target2};
+        File[] dependencies = {dependency1, dependency2};
+        StringBuilder log = new StringBuilder();
+        Consumer<File> writeFile = f -> {
+            log.append("write ").append(f.getName()).append("\n");
+            writeText(f, "x");
+        };
+        Runnable onUpToDate = () -> log.append("up-to-date\n");
+
+        FileUtil.writeFilesIfOutdated(targets, dependencies, writeFile, onUpToDate);
+        FileUtil.writeFilesIfOutdated(targets, dependencies, writeFile, onUpToDate);
+        // one missing target -> all targets are written
+        FileUtil.deleteFile(target2);
+        FileUtil.writeFilesIfOutdated(targets, dependencies, writeFile, onUpToDate);
+        // an additional dependency -> outdated
+        File dependency3 = new File(dir, "dep3.txt");
+        writeText(dependency3, "baz");
+        File[] moreDependencies = {dependency1, dependency2, dependency3};
+        FileUtil.writeFilesIfOutdated(targets, moreDependencies, writeFile, onUpToDate);
+        FileUtil.writeFilesIfOutdated(targets, moreDependencies, writeFile, onUpToDate);
+
+        assertEquals("write target1.txt\n" +
+                "write target2.txt\n" +
+                "up-to-date\n" +
+                "write target1.txt\n" +
+                "write target2.txt\n" +
+                "write target1.txt\n" +
+                "write target2.txt\n" +
+                "up-to-date\n", log.toString());
+    }
+
+    @Test
+    void newTextFileCache() {
+        File dir = tempDirectoryForRun();
+        File a = new File(dir, "a.txt");
+        File b = new File(dir, "b.txt");
+        writeText(a, "aaaa");
+        writeText(b, "bbbbbb");
+        // files modified "long ago", so their texts are not racy
+        long lastModified = System.currentTimeMillis() - 10000;
+        assertTrue(a.setLastModified(lastModified));
+        assertTrue(b.setLastModified(lastModified));
+        TextFileCache cache = FileUtil.newTextFileCache(10);
+
+        assertEquals("aaaa", cache.textOf(a));
+        assertEquals("aaaa", cache.textOf(a));
+        assertEquals("bbbbbb", cache.textOf(b));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(10, cache.getWeight());
+
+        // a changed file is read again
+        writeText(a, "aaa");
+        assertTrue(a.setLastModified(lastModified + 2000));
+        assertEquals("aaa", cache.textOf(a));
+        assertEquals(3, cache.getMissCount());
+        assertEquals(9, cache.getWeight());
+
+        // exceeding the capacity evicts the least recently used text (b)
+        File c = new File(dir, "c.txt");
+        writeText(c, "cc");
+        assertTrue(c.setLastModified(lastModified));
+        assertEquals("cc", cache.textOf(c));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(5, cache.getWeight());
+        assertEquals("aaa", cache.textOf(a));
+        assertEquals(2, cache.getHitCount());
+
+        cache.invalidate(a);
+        assertEquals(2, cache.getWeight());
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+        assertEquals(10, cache.getCapacity());
+
+        assertThrows(UncheckedIOException.class,
+                () -> cache.textOf(new File(dir, "missing.txt")));
+    }
+
+    @Test
+    void newTextFileCache_racyFile() {
+        File file = new File(tempDirectoryForRun(), "a.properties");
+        writeText(file, "a=1");
+        TextFileCache cache = FileUtil.newTextFileCache(100);
+
+        assertEquals("a=1", cache.textOf(file));
+        // change the content, but keep size and last modified time, as
+        // when modified again within the file system's time granularity
+        long lastModified = file.lastModified();
+        writeText(file, "a=2");
+        assertTrue(file.setLastModified(lastModified));
+
+        assertEquals("a=2", cache.textOf(file));
+        assertEquals(0, cache.getHitCount());
+
+        // once the modification is old enough the text is cached
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 10000));
+        assertEquals("a=2", cache.textOf(file));
+        assertEquals("a=2", cache.textOf(file));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void writeTextCompressed_textOfCompressed() {
+        File dir = tempDirectoryForRun();
+        // the directory "sub" is created when writing the file
+        File file = new File(dir, "sub/text.txt.gz");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            text.append("Line ").append(i).append(" \u00e4\u00f6\u00fc\n");
+        }
+
+        writeTextCompressed(file, text.toString());
+
+        assertTrue(file.length() < text.length() / 2);
+        assertEquals(text.toString(), textOfCompressed(file));
+
+        File copy = new File(dir, "copy/text.txt");
+        FileUtil.copyFileDecompressed(file, copy);
+        assertEquals(text.toString(), textOf(copy));
+
+        File compressedCopy = new File(dir, "copy/text2.txt.gz");
+        FileUtil.copyFileCompressed(copy, compressedCopy);
+        assertEquals(text.toString(), textOfCompressed(compressedCopy));
+    }
+
+    @Test
+    void writeTexts() {
+        File dir = tempDirectoryForRun();
+        Map<File, String> texts = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            texts.put(new File(dir, "d" + (i % 7) + "/e" + (i % 3) + "/f" + i + ".txt"),
+                    "text " + i + " \u00e4");
+        }
+
+        WriteFilesResult result = FileUtil.writeTexts(texts);
+
+        assertEquals(200, result.getWrittenFileCount());
+        assertEquals(0, result.getSkippedFileCount());
+        for (Map.Entry<File, String> e : texts.entrySet()) {
+            assertEquals(e.getValue(), textOf(e.getKey()));
+        }
+
+        // rewrite with some changed texts, skipping unchanged files
+        File changedFile = new File(dir, "d1/e1/f1.txt");
+        texts.put(changedFile, "changed");
+        texts.put(new File(dir, "d2/e2/f2.txt"), "text 2 \u00e4 changed");
+        WriteFilesOptions options = new WriteFilesOptions() {
+            @Override
+            public boolean getSkipUnchangedFiles() {
+                return true;
+            }
+        };
+
+        result = FileUtil.writeTexts(texts, options);
+
+        assertEquals(2, result.getWrittenFileCount());
+        assertEquals(198, result.getSkippedFileCount());
+        assertEquals("changed", textOf(changedFile));
+        assertEquals("text 3 \u00e4", textOf(new File(dir, "d3/e0/f3.txt")));
+    }
 }
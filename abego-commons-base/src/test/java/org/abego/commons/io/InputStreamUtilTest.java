@@ -26,14 +26,25 @@ package org.abego.commons.io;
 
 import org.abego.commons.TestData;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
+import org.abego.commons.text.LineProcessor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.abego.commons.TestData.EMPTY_TXT_RESOURCE_NAME;
 import static org.abego.commons.TestData.EMPTY_TXT_TEXT;
@@ -47,7 +58,9 @@ import static org.abego.commons.io.InputStreamUtil.readLineWise;
 import static org.abego.commons.io.InputStreamUtil.textOf;
 import static org.abego.commons.io.InputStreamUtil.write;
 import static org.abego.commons.lang.ClassUtil.resourceAsStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class InputStreamUtilTest {
@@ -119,6 +132,25 @@ class InputStreamUtilTest {
         assertEquals("1: foo\n2: bar\n", out.toString());
     }
 
+    @Test
+    void readLineWisePipelined() throws IOException {
+        InputStream in = newInputStream("foo\nbar");
+        StringBuilder out = new StringBuilder();
+        readLineWise(in, new LineProcessor() {
+            @Override
+            public void processLine(String line, int lineNumber) {
+                out.append(String.format("%d: %s\n", lineNumber, line));
+            }
+
+            @Override
+            public void end(int lineCount) {
+                out.append("lines: ").append(lineCount);
+            }
+        }, true);
+
+        assertEquals("1: foo\n2: bar\nlines: 2", out.toString());
+    }
+
     @Test
     void copyStream_large() {
         // The text to copy should have a certain size to ensure it does
@@ -143,4 +175,117 @@ class InputStreamUtilTest {
 
         assertEquals(text, ByteArrayOutputStreamUtil.textOf(output));
     }
+
+    @Test
+    void sortLines() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        InputStreamUtil.sortLines(newInputStream("c\na\r\nb\n\na"), output);
+
+        assertEquals("\na\na\nb\nc\n", ByteArrayOutputStreamUtil.textOf(output));
+    }
+
+    @Test
+    void sortLines_externalWithOptions() {
+        // many more lines than fit into a run -> multiple runs, merged in
+        // more than one pass
+        List<String> lines = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            lines.add("line " + random.nextInt(5000));
+        }
+        String text = String.join("\n", lines);
+        File tempDir = FileUtil.tempDirectoryForRun();
+        SortLinesOptions options = new SortLinesOptions() {
+            @Override
+            public Comparator<String> getComparator() {
+                return Comparator.reverseOrder();
+            }
+
+            @Override
+            public boolean getRemoveDuplicates() {
+                return true;
+            }
+
+            @Override
+            public int getRunSize() {
+                return 1000;
+            }
+
+            @Override
+            public File getTempDirectory() {
+                return tempDir;
+            }
+        };
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        InputStreamUtil.sortLines(newInputStream(text, StandardCharsets.ISO_8859_1),
+                StandardCharsets.ISO_8859_1, output, options);
+
+        String expected = lines.stream()
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .map(l -> l + "\n")
+                .collect(Collectors.joining());
+        assertEquals(expected, ByteArrayOutputStreamUtil.textOf(output));
+        // the temporary files are deleted
+        assertEquals(0, FileUtil.filesInDirectory(tempDir).length);
+    }
+
+    @Test
+    void copyStream_withProgress() throws IOException {
+        // file to file, i.e. transferred by the operating system
+        byte[] data = new byte[3 * ChannelTransfer.BUFFER_SIZE + 123];
+        new Random(42).nextBytes(data);
+        File source = tempFileForRun();
+        File target = tempFileForRun();
+        Files.write(source.toPath(), data);
+        List<Long> progress = new ArrayList<>();
+
+        long n;
+        try (InputStream input = new FileInputStream(source);
+             OutputStream output = new FileOutputStream(target)) {
+            n = InputStreamUtil.copyStream(input, output, progress::add);
+        }
+
+        assertEquals(data.length, n);
+        assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+        assertEquals(data.length, progress.get(progress.size() - 1));
+
+        // file to non-file stream, i.e. through a direct buffer
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = new FileInputStream(source)) {
+            assertEquals(data.length, InputStreamUtil.copyStream(input, output, null));
+        }
+        assertArrayEquals(data, output.toByteArray());
+    }
+
+    @Test
+    void write_withProgress() throws IOException {
+        byte[] data = new byte[2 * ChannelTransfer.BUFFER_SIZE + 1];
+        new Random(42).nextBytes(data);
+        File file = tempFileForRun();
+        FileUtil.writeText(file, "old content");
+        List<Long> progress = new ArrayList<>();
+
+        long n = InputStreamUtil.write(new ByteArrayInputStream(data), file, progress::add);
+
+        assertEquals(data.length, n);
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(data.length, progress.get(progress.size() - 1));
+    }
+
+    @Test
+    void write_replacesSymbolicLink() throws IOException {
+        File linkedFile = tempFileForRun();
+        FileUtil.writeText(linkedFile, "linked");
+        File link = new File(linkedFile.getParentFile(), linkedFile.getName() + ".link");
+        Files.createSymbolicLink(link.toPath(), linkedFile.toPath());
+
+        InputStreamUtil.write(newInputStream("new"), link, null);
+
+        assertEquals("new", FileUtil.textOf(link));
+        assertEquals("linked", FileUtil.textOf(linkedFile));
+        assertFalse(Files.isSymbolicLink(link.toPath()));
+    }
 }
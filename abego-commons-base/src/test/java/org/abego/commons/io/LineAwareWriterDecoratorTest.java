@@ -62,6 +62,34 @@ class LineAwareWriterDecoratorTest {
         helper("", "");
     }
 
+    @Test
+    void case_writeSingleChars() throws IOException {
+        StringWriter output = new StringWriter();
+
+        try (WriterWithLineNumbers writer = new WriterWithLineNumbers(output)) {
+            for (char c : "a\nb\r\nc\r\rd".toCharArray()) {
+                writer.write(c);
+            }
+        }
+
+        assertEquals("1: a\n2: b\r\n3: c\r\r5: d", output.toString());
+    }
+
+    @Test
+    void case_lineSeparatorSplitAcrossWrites() throws IOException {
+        StringWriter output = new StringWriter();
+
+        try (WriterWithLineNumbers writer = new WriterWithLineNumbers(output)) {
+            writer.write("a\r");
+            writer.write("\nb\r");
+            writer.write("\r\nc\r");
+            writer.write("d".toCharArray(), 0, 1);
+            writer.write("xe".toCharArray(), 1, 1);
+        }
+
+        assertEquals("1: a\r\n2: b\r3: \r\n4: c\r5: d5: e", output.toString());
+    }
+
     @Test
     void flush_ok() throws IOException {
         File file = tempFileForRun();
@@ -27,14 +27,23 @@ package org.abego.commons.io;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.abego.commons.TestData.SAMPLE_TEXT;
 import static org.abego.commons.io.OutputStreamUtil.getOutputStreamFailingOnWrite;
 import static org.abego.commons.io.PrintStreamToBuffer.newPrintStreamToBuffer;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OutputStreamUtilTest {
 
@@ -60,4 +69,41 @@ class OutputStreamUtilTest {
         IllegalStateException e = assertThrows(IllegalStateException.class, () -> stream.write(123));
         assertEquals("will fail on write", e.getMessage());
     }
+
+    @Test
+    void newParallelGZIPOutputStream() throws IOException {
+        // more than 3 blocks, with a partial last block
+        byte[] data = new byte[3 * ParallelGZIPOutputStream.BLOCK_SIZE + 12345];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (OutputStream out = OutputStreamUtil.newParallelGZIPOutputStream(
+                compressed, 3, Deflater.BEST_SPEED)) {
+            out.write(data[0]);
+            out.write(data, 1, data.length - 1);
+        }
+
+        assertTrue(compressed.size() < data.length / 2);
+        assertArrayEquals(data, gunzipped(compressed.toByteArray()));
+    }
+
+    @Test
+    void newParallelGZIPOutputStream_empty() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        OutputStreamUtil.newParallelGZIPOutputStream(compressed).close();
+
+        assertArrayEquals(new byte[0], gunzipped(compressed.toByteArray()));
+    }
+
+    private static byte[] gunzipped(byte[] bytes) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            InputStreamUtil.copyStream(in, result);
+        }
+        return result.toByteArray();
+    }
 }
@@ -28,11 +28,17 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.abego.commons.TestData.SAMPLE_TEXT;
+import static org.abego.commons.TestData.SAMPLE_TEXT_SUBSTRING_1_2;
 import static org.abego.commons.io.PrintStreamToBuffer.newPrintStreamToBuffer;
+import static org.abego.commons.io.PrintStreamToBuffer.newPrintStreamToBufferKeepingLastBytes;
+import static org.abego.commons.io.PrintStreamToBuffer.newPrintStreamToBufferKeepingLastLines;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PrintStreamToBufferTest {
 
@@ -61,4 +67,114 @@ class PrintStreamToBufferTest {
         assertEquals("java.io.UnsupportedEncodingException: unknown encoding",
                 e.getMessage());
     }
+
+    @Test
+    void keepingLastBytes() {
+        try (PrintStreamToBuffer stream = newPrintStreamToBufferKeepingLastBytes(5)) {
+            stream.print("abc");
+            assertEquals("abc", stream.text());
+
+            stream.print("defg");
+            assertEquals("cdefg", stream.text());
+
+            stream.print("0123456789");
+            assertEquals("56789", stream.text());
+
+            // "ä" and "ñ" take 2 bytes each in UTF-8. A character cut off at
+            // the start is dropped completely
+            stream.print("ä" + SAMPLE_TEXT_SUBSTRING_1_2);
+            assertEquals(SAMPLE_TEXT_SUBSTRING_1_2, stream.text());
+        }
+    }
+
+    @Test
+    void keepingLastLines() {
+        try (PrintStreamToBuffer stream = newPrintStreamToBufferKeepingLastLines(2)) {
+            stream.println("line 1");
+            stream.println("line 2");
+            assertEquals("line 1\nline 2\n", stream.text().replace("\r\n", "\n"));
+
+            stream.print("line 3\nline 4\nli");
+            assertEquals("line 4\nli", stream.text());
+
+            stream.print("ne 5\n");
+            assertEquals("line 4\nline 5\n", stream.text());
+        }
+    }
+
+    @Test
+    void keepingLastLines_longLines() {
+        try (PrintStreamToBuffer stream = newPrintStreamToBufferKeepingLastLines(2, 4)) {
+            stream.print("abcdefgh");
+            assertEquals("efgh", stream.text());
+
+            stream.print("ij\nklmnopq\nr");
+            // the line feed is part of the line's bytes
+            assertEquals("opq\nr", stream.text());
+        }
+    }
+
+    @Test
+    void keepingLastLines_longPrints() throws InterruptedException {
+        // prints longer than the PrintStream's internal buffers reach the
+        // buffer in multiple writes
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longLine.append('x');
+        }
+        String line = longLine.toString();
+        try (PrintStreamToBuffer stream = newPrintStreamToBufferKeepingLastLines(10, 100000)) {
+            Thread printer = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    stream.print(line + "\n");
+                }
+            });
+            printer.start();
+            for (int i = 0; i < 200; i++) {
+                String text = stream.text();
+                assertTrue(text.isEmpty() || text.endsWith("\n"));
+            }
+            printer.join();
+        }
+    }
+
+    @Test
+    void keepingLastLines_concurrentWrites() throws InterruptedException {
+        int threadCount = 4;
+        int linesPerThread = 1000;
+        try (PrintStreamToBuffer stream = newPrintStreamToBufferKeepingLastLines(100)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                String name = "thread " + t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < linesPerThread; i++) {
+                        stream.print(name + ": " + i + "\n");
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (int i = 0; i < 100; i++) {
+                // every snapshot only contains complete lines
+                String text = stream.text();
+                assertTrue(text.isEmpty() || text.endsWith("\n"));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            String[] lines = stream.text().split("\n");
+            assertEquals(100, lines.length);
+            for (String line : lines) {
+                assertTrue(line.matches("thread \\d: \\d+"), line);
+            }
+        }
+    }
+
+    @Test
+    void keepingLastBytes_invalidArgument() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> newPrintStreamToBufferKeepingLastBytes(0));
+        assertEquals("maxBytes must be >= 1, got 0", e.getMessage());
+    }
 }
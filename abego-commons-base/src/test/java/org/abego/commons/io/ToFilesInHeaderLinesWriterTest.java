@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.abego.commons.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import static org.abego.commons.io.FileUtil.file;
+import static org.abego.commons.io.FileUtil.tempDirectoryForRun;
+import static org.abego.commons.io.ToFilesInHeaderLinesWriter.toFilesInHeaderLinesWriter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ToFilesInHeaderLinesWriterTest {
+
+    @Test
+    void case_happyPath() throws IOException {
+        File dir = tempDirectoryForRun();
+        File a = file(dir, "a.txt");
+        File b = file(dir, "sub/dir/b.txt");
+
+        Writer writer = toFilesInHeaderLinesWriter(">>> ");
+
+        writer.write(">>> " + a.getAbsolutePath() + "\n");
+        writer.write("hello\nworld!\n");
+        writer.write(">>> " + b.getAbsolutePath() + "\r\n");
+        writer.write("foo\r\nbar\r"); // end with \r to test special case code
+        writer.close();
+
+        assertEquals("hello\nworld!\n", FileUtil.textOf(a));
+        assertEquals("foo\r\nbar\r", FileUtil.textOf(b));
+    }
+
+    @Test
+    void manyFilesWithFewOpenFiles() throws IOException {
+        File dir = tempDirectoryForRun();
+        int fileCount = 7;
+        StringBuilder[] expected = new StringBuilder[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            expected[i] = new StringBuilder();
+        }
+
+        try (Writer writer = toFilesInHeaderLinesWriter(
+                line -> line.startsWith("#file ") ? line.substring(6) : null,
+                StandardCharsets.UTF_8,
+                2)) {
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < fileCount; i++) {
+                    // write in small pieces to split the header lines, too
+                    String text = "#file " + file(dir, "f" + i + ".txt").getAbsolutePath() +
+                            "\nround " + round + " in file " + i + "\n";
+                    for (int j = 0; j < text.length(); j += 5) {
+                        writer.write(text, j, Math.min(5, text.length() - j));
+                    }
+                    expected[i].append("round ").append(round)
+                            .append(" in file ").append(i).append("\n");
+                }
+            }
+        }
+
+        for (int i = 0; i < fileCount; i++) {
+            assertEquals(expected[i].toString(),
+                    FileUtil.textOf(file(dir, "f" + i + ".txt")));
+        }
+    }
+
+    @Test
+    void differentPathnamesForSameFile() throws IOException {
+        File dir = tempDirectoryForRun();
+        File b = file(dir, "b.txt");
+
+        try (Writer writer = toFilesInHeaderLinesWriter(">>> ")) {
+            writer.write(">>> " + b.getAbsolutePath() + "\nfirst\n");
+            writer.write(">>> " + dir.getAbsolutePath() + "/a/../b.txt\nsecond\n");
+        }
+
+        assertEquals("first\nsecond\n", FileUtil.textOf(b));
+    }
+
+    @Test
+    void flushWritesFilesClosedInBackground() throws IOException {
+        File dir = tempDirectoryForRun();
+        File a = file(dir, "a.txt");
+        File b = file(dir, "b.txt");
+
+        try (Writer writer = toFilesInHeaderLinesWriter(
+                line -> line.startsWith(">>> ") ? line.substring(4) : null,
+                StandardCharsets.UTF_8,
+                1)) {
+            writer.write(">>> " + a.getAbsolutePath() + "\naaa\n");
+            // closes "a.txt" in the background
+            writer.write(">>> " + b.getAbsolutePath() + "\nbbb\n");
+            writer.flush();
+
+            assertEquals("aaa\n", FileUtil.textOf(a));
+            assertEquals("bbb\n", FileUtil.textOf(b));
+        }
+    }
+
+    @Test
+    void existingFileIsReplaced() throws IOException {
+        File dir = tempDirectoryForRun();
+        File a = file(dir, "a.txt");
+        FileUtil.writeText(a, "old text");
+
+        try (Writer writer = toFilesInHeaderLinesWriter(">>> ")) {
+            writer.write(">>> " + a.getAbsolutePath() + "\nnew text");
+        }
+
+        assertEquals("new text", FileUtil.textOf(a));
+    }
+
+    @Test
+    void textBeforeFirstFileHeaderLine() {
+        IOException e = assertThrows(IOException.class, () -> {
+            try (Writer writer = toFilesInHeaderLinesWriter(">>> ")) {
+                writer.write("hello\n");
+            }
+        });
+        assertEquals("Text before first file header line: hello", e.getMessage());
+    }
+
+    @Test
+    void close_missingFileHeaderLine() {
+        IOException e = assertThrows(IOException.class, () -> {
+            //noinspection EmptyTryBlock
+            try (Writer ignored = toFilesInHeaderLinesWriter(">>> ")) {
+                // intentionally empty
+            }
+        });
+        assertEquals(
+                "No file header line found in output.",
+                e.getMessage());
+    }
+}
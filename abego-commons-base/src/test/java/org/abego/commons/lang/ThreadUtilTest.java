@@ -29,10 +29,19 @@ import org.abego.commons.blackboard.BlackboardDefault;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.abego.commons.lang.ObjectUtil.ignore;
+import static org.abego.commons.lang.ThreadUtil.forEachInParallel;
 import static org.abego.commons.lang.ThreadUtil.runAsync;
 import static org.abego.commons.lang.ThreadUtil.runInNewThread;
 import static org.abego.commons.lang.ThreadUtil.sleep;
+import static org.abego.commons.util.ListUtil.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -140,4 +149,80 @@ class ThreadUtilTest {
         }
 
     }
+
+    @Test
+    void forEachInParallelOK() {
+        Set<String> results = ConcurrentHashMap.newKeySet();
+
+        forEachInParallel(toList("a", "b", "c", "d"), 2,
+                s -> results.add(s.toUpperCase()));
+
+        assertEquals(4, results.size());
+        assertTrue(results.containsAll(toList("A", "B", "C", "D")));
+    }
+
+    @Test
+    void forEachInParallelRespectsMaxConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        forEachInParallel(toList(1, 2, 3, 4, 5, 6, 7, 8), 3, i -> {
+            int n = running.incrementAndGet();
+            maxRunning.accumulateAndGet(n, Math::max);
+            sleep(10);
+            running.decrementAndGet();
+        });
+
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    void forEachInParallelTakesItemsOnlyWhenActionCanStart() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Iterable<Integer> items = () -> new Iterator<Integer>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= 8;
+            }
+
+            @Override
+            public Integer next() {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return next++;
+            }
+        };
+
+        forEachInParallel(items, 3, i -> {
+            sleep(10);
+            inFlight.decrementAndGet();
+        });
+
+        assertEquals(0, inFlight.get());
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    void forEachInParallelRethrowsException() {
+        List<Integer> items = toList(1, 2, 3);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> forEachInParallel(items, 2, i -> {
+                    if (i == 2) {
+                        throw new IllegalStateException("failed: " + i);
+                    }
+                }));
+
+        assertEquals("failed: 2", e.getMessage());
+    }
+
+    @Test
+    void forEachInParallelInvalidMaxConcurrency() {
+        List<Integer> items = toList(1, 2, 3);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> forEachInParallel(items, 0, i -> {}));
+    }
 }
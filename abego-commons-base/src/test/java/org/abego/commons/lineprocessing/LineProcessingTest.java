@@ -28,11 +28,21 @@ package org.abego.commons.lineprocessing;
 import org.abego.commons.lineprocessing.LineProcessing.ScriptBuilder;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.abego.commons.io.FileUtil.appendText;
+import static org.abego.commons.io.FileUtil.mkdirs;
+import static org.abego.commons.io.FileUtil.tempDirectoryForRun;
+import static org.abego.commons.io.FileUtil.tempFileForRun;
+import static org.abego.commons.io.FileUtil.writeText;
 import static org.abego.commons.io.InputStreamUtil.newInputStream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class LineProcessingTest {
 
@@ -140,6 +150,493 @@ class LineProcessingTest {
         assertEquals("line 1: bar - pattern? false\n", out.toString());
     }
 
+    @Test
+    void rulesWithPrefixesKeepOrderAndMoreSemantics() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        StringBuilder out = new StringBuilder();
+        builder.onMatch("foo(.*)", (c, s) -> {
+            out.append("foo-rule: ").append(c.m().group(1)).append("\n");
+            c.more();
+        });
+        builder.onMatch("bar.*", (c, s) ->
+                out.append("bar-rule\n"));
+        builder.onMatch(".*x", (c, s) ->
+                out.append("x-rule\n"));
+        builder.onMatch("fo.*", (c, s) ->
+                out.append("fo-rule\n"));
+        builder.onMatch("\u00e4.*", (c, s) ->
+                out.append("umlaut-rule\n"));
+        builder.onDefault((c, s) ->
+                out.append("default: ").append(c.line()).append("\n"));
+
+        LineProcessing.Script script = builder.build();
+
+        script.process("foox\nbarx\nfoo\nbaz\n\u00e4x\n\n");
+
+        assertEquals("foo-rule: x\n" +
+                "x-rule\n" +
+                "bar-rule\n" +
+                "foo-rule: \n" +
+                "fo-rule\n" +
+                "default: baz\n" +
+                "x-rule\n" +
+                "default: \n", out.toString());
+    }
+
+    @Test
+    void matcherAndLineAccessForManyLines() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        StringBuilder out = new StringBuilder();
+        builder.onMatch("item (\\d+)", (c, s) ->
+                s.charCount += Integer.parseInt(c.m().group(1)));
+        builder.onMatch("(.*)!", (c, s) ->
+                out.append(c.lineNumber()).append(":").append(c.m().group(1))
+                        .append("/").append(c.line()).append("\n"));
+        builder.onEndOfText((c, s) ->
+                out.append("sum: ").append(s.charCount).append(", last: ")
+                        .append(c.line()));
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 10000; i++) {
+            text.append("item ").append(i).append("\r\n");
+        }
+        text.append("hello!\nend");
+
+        builder.build().process(text.toString());
+
+        assertEquals("10001:hello/hello!\nsum: 50005000, last: end", out.toString());
+    }
+
+    @Test
+    void processInParallel() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        builder.onMatch("item (\\d+) .*", (c, s) -> {
+            s.lines.add(c.lineNumber() + ":" + c.m().group(1));
+            s.sum += Integer.parseInt(c.m().group(1));
+        });
+        builder.onDefault((c, s) -> s.lines.add(c.lineNumber() + ":" + c.line()));
+        builder.onMergeStates((s1, s2) -> {
+            s1.lines.addAll(s2.lines);
+            s1.sum += s2.sum;
+            return s1;
+        });
+        StringBuilder out = new StringBuilder();
+        List<String> resultLines = new ArrayList<>();
+        builder.onEndOfText((c, s) -> {
+            out.append(c.lineNumber()).append(":").append(c.line())
+                    .append(", sum: ").append(s.sum);
+            resultLines.addAll(s.lines);
+        });
+        ScriptImpl<?> script = (ScriptImpl<?>) builder.build();
+
+        StringBuilder text = new StringBuilder();
+        List<String> expectedLines = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            text.append("item ").append(i).append(" \u00e4\u00f6\u00fc")
+                    .append(i % 3 == 0 ? "\r\n" : "\n");
+            expectedLines.add(i + ":" + i);
+        }
+        text.append("\u00e4nd");
+        expectedLines.add("5001:\u00e4nd");
+        File file = writeText(tempFileForRun(), text.toString());
+
+        // use small chunks to get many chunks, even for a small file
+        script.processInParallel(file.toPath(), StandardCharsets.UTF_8, 1000, 4);
+
+        assertEquals(expectedLines, resultLines);
+        assertEquals("5001:\u00e4nd, sum: 12502500", out.toString());
+    }
+
+    @Test
+    void processInParallelWithoutMergeFunctionIsSequential() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        StringBuilder out = new StringBuilder();
+        builder.onDefault((c, s) -> {
+            s.charCount += c.line().length();
+            out.append(c.lineNumber()).append(";");
+        });
+        builder.onEndOfText((c, s) -> out.append("total: ").append(s.charCount));
+        File file = writeText(tempFileForRun(), "a\nbb\nccc");
+
+        builder.build().processInParallel(file.toPath());
+
+        assertEquals("1;2;3;total: 6", out.toString());
+    }
+
+    @Test
+    void processPath() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        StringBuilder out = new StringBuilder();
+        builder.onMatch("(\\w+): (.*)", (c, s) -> out.append(c.lineNumber())
+                .append(" ").append(c.m().group(1)).append("=")
+                .append(c.m().group(2)).append("\n"));
+        builder.onDefault((c, s) -> out.append(c.lineNumber()).append(" ?")
+                .append(c.line()).append("\n"));
+        File file = writeText(tempFileForRun(), "name: J\u00fcrgen\r\n\nage: 42\rnope");
+
+        builder.build().process(file.toPath());
+
+        assertEquals("1 name=J\u00fcrgen\n2 ?\n3 age=42\n4 ?nope\n", out.toString());
+    }
+
+    @Test
+    void statistics() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        builder.collectStatistics();
+        builder.onMatch("a.*", (c, s) -> c.more());
+        builder.onMatch((c, s) -> c.line().endsWith("b"), (c, s) -> {});
+        builder.onDefault((c, s) -> {});
+        LineProcessing.Script script = builder.build();
+
+        script.process("ab\nax\nb\nc");
+        script.process("ab");
+
+        LineProcessing.Statistics statistics = script.statistics();
+        assertEquals(5, statistics.lineCount());
+        assertEquals(1, statistics.defaultActionCount());
+        assertEquals(3, statistics.moreCount());
+        List<LineProcessing.RuleStatistics> rules = statistics.ruleStatistics();
+        assertEquals(2, rules.size());
+        assertEquals(0, rules.get(0).ruleIndex());
+        assertEquals("a.*", rules.get(0).ruleText());
+        assertEquals(3, rules.get(0).matchCount());
+        assertEquals(1, rules.get(1).ruleIndex());
+        assertEquals("<condition>", rules.get(1).ruleText());
+        assertEquals(3, rules.get(1).matchCount());
+        assertTrue(rules.get(1).attemptCount() >= 3);
+        assertTrue(statistics.text().contains("lines: 5, default actions: 1, more() calls: 3"));
+    }
+
+    @Test
+    void statisticsInParallel() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        builder.collectStatistics();
+        builder.onMatch("\\d+", (c, s) -> {});
+        builder.onMergeStates((a, b) -> a);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append(i % 2 == 0 ? i : "x").append("\n");
+        }
+        File file = writeText(tempFileForRun(), text.toString());
+
+        ScriptImpl<?> script = (ScriptImpl<?>) builder.build();
+
+        // use small chunks to get many chunks, even for a small file
+        script.processInParallel(file.toPath(), StandardCharsets.UTF_8, 1000, 4);
+
+        LineProcessing.Statistics statistics = script.statistics();
+        assertEquals(3000, statistics.lineCount());
+        assertEquals(1500, statistics.defaultActionCount());
+        assertEquals(1500, statistics.ruleStatistics().get(0).matchCount());
+    }
+
+    @Test
+    void statisticsNotCollected() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        builder.onMatch("a", (c, s) -> {});
+        LineProcessing.Script script = builder.build();
+
+        script.process("a\nb");
+
+        LineProcessing.Statistics statistics = script.statistics();
+        assertEquals(0, statistics.lineCount());
+        assertEquals(0, statistics.ruleStatistics().get(0).attemptCount());
+    }
+
+    @Test
+    void follow() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        List<String> lines = new ArrayList<>();
+        builder.onMatch("x", (c, s) -> s.lines.add(c.line()));
+        builder.onDefault((c, s) -> lines.add(c.lineNumber() + ":" + c.line()));
+        builder.onEndOfText((c, s) -> lines.add("end " + s.lines.size()));
+        LineProcessing.Script script = builder.build();
+        File file = writeText(tempFileForRun(), "a\nb\nc");
+
+        LineProcessing.Follower follower = script.follow(file.toPath());
+
+        // the incomplete last line "c" is not processed yet
+        assertEquals(2, follower.processNewLines());
+        assertEquals("[1:a, 2:b]", lines.toString());
+        assertEquals(4, follower.checkpoint().byteOffset());
+        assertEquals(2, follower.checkpoint().lineNumber());
+
+        assertEquals(0, follower.processNewLines());
+
+        appendText(file, "d\r\nx\nx\ne");
+        assertEquals(3, follower.processNewLines());
+        assertEquals("[1:a, 2:b, 3:cd]", lines.toString());
+
+        follower.finish();
+        assertEquals("[1:a, 2:b, 3:cd, 6:e, end 2]", lines.toString());
+        assertEquals(13, follower.checkpoint().byteOffset());
+        assertEquals(6, follower.checkpoint().lineNumber());
+        assertThrows(IllegalStateException.class, follower::processNewLines);
+    }
+
+    @Test
+    void followFromCheckpoint() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        List<String> lines = new ArrayList<>();
+        builder.onDefault((c, s) -> lines.add(c.lineNumber() + ":" + c.line()));
+        File file = writeText(tempFileForRun(), "a\nb\nc\n");
+
+        LineProcessing.Follower follower = builder.build().follow(file.toPath(),
+                StandardCharsets.UTF_8, LineProcessing.newCheckpoint(2, 1));
+
+        assertEquals(2, follower.processNewLines());
+        assertEquals("[2:b, 3:c]", lines.toString());
+    }
+
+    @Test
+    void followTruncatedFile() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        List<String> lines = new ArrayList<>();
+        builder.onDefault((c, s) -> lines.add(c.lineNumber() + ":" + c.line()));
+        File file = writeText(tempFileForRun(), "a\nb\n");
+        LineProcessing.Follower follower = builder.build().follow(file.toPath());
+        follower.processNewLines();
+
+        writeText(file, "c\n");
+        follower.processNewLines();
+
+        assertEquals("[1:a, 2:b, 1:c]", lines.toString());
+    }
+
+    @Test
+    void followFileReplacedWhileStopped() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        List<String> lines = new ArrayList<>();
+        builder.onDefault((c, s) -> lines.add(c.lineNumber() + ":" + c.line()));
+        LineProcessing.Script script = builder.build();
+        File file = writeText(tempFileForRun(), "a\nb\n");
+        LineProcessing.Follower follower = script.follow(file.toPath());
+        follower.processNewLines();
+        LineProcessing.Checkpoint checkpoint = follower.checkpoint();
+
+        // the file is rotated while not followed, and the new file is
+        // already longer than the checkpoint's offset
+        writeText(file, "c\nd\ne\n");
+        LineProcessing.Follower resumed = script.follow(file.toPath(),
+                StandardCharsets.UTF_8,
+                LineProcessing.newCheckpoint(checkpoint.byteOffset(),
+                        checkpoint.lineNumber(), checkpoint.fingerprint()));
+        resumed.processNewLines();
+
+        assertEquals("[1:a, 2:b, 1:c, 2:d, 3:e]", lines.toString());
+    }
+
+    @Test
+    void followTruncatedFileGrownBeyondCheckpoint() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        List<String> lines = new ArrayList<>();
+        builder.onDefault((c, s) -> lines.add(c.lineNumber() + ":" + c.line()));
+        File file = writeText(tempFileForRun(), "a\nb\n");
+        LineProcessing.Follower follower = builder.build().follow(file.toPath());
+        follower.processNewLines();
+
+        // "copytruncate" rotation, with new lines written before the next poll
+        writeText(file, "c\nd\ne\n");
+        follower.processNewLines();
+
+        assertEquals("[1:a, 2:b, 1:c, 2:d, 3:e]", lines.toString());
+    }
+
+    @Test
+    void followMissingFile() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        File file = new File(tempFileForRun().getPath() + ".missing");
+        LineProcessing.Script script = builder.build();
+
+        assertEquals(0, script.follow(file.toPath()).processNewLines());
+        assertThrows(IllegalArgumentException.class,
+                () -> script.follow(file.toPath(), StandardCharsets.UTF_16));
+    }
+
+    @Test
+    void combinedScript() {
+        StringBuilder out1 = new StringBuilder();
+        ScriptBuilder<MyState> builder1 = LineProcessing.newScriptBuilder(MyState::new);
+        builder1.onDefault((c, s) -> s.charCount += c.line().length());
+        builder1.onEndOfText((c, s) -> out1.append("chars: ").append(s.charCount));
+        StringBuilder out2 = new StringBuilder();
+        ScriptBuilder<LinesState> builder2 = LineProcessing.newScriptBuilder(LinesState::new);
+        builder2.onMatch("b.*", (c, s) -> s.lines.add(c.lineNumber() + ":" + c.line()));
+        builder2.onEndOfText((c, s) -> out2.append(s.lines));
+
+        LineProcessing.Script script = LineProcessing.newCombinedScript(
+                builder1.build(), builder2.build());
+        script.process("a\nbb\nccc\nbd");
+
+        assertEquals("chars: 8", out1.toString());
+        assertEquals("[2:bb, 4:bd]", out2.toString());
+        // the scripts do not collect statistics
+        assertEquals(0, script.statistics().lineCount());
+    }
+
+    @Test
+    void combinedScriptStatistics() {
+        ScriptBuilder<MyState> builder1 = LineProcessing.newScriptBuilder(MyState::new);
+        builder1.collectStatistics();
+        builder1.onMatch("a.*", (c, s) -> {});
+        builder1.onDefault((c, s) -> {});
+        ScriptBuilder<MyState> builder2 = LineProcessing.newScriptBuilder(MyState::new);
+        builder2.collectStatistics();
+        builder2.onMatch("b.*", (c, s) -> c.more());
+        builder2.onMatch("c.*", (c, s) -> {});
+        builder2.onDefault((c, s) -> {});
+
+        LineProcessing.Script script = LineProcessing.newCombinedScript(
+                builder1.build(), builder2.build());
+        script.process("a\nbb\nccc\nbd");
+
+        LineProcessing.Statistics statistics = script.statistics();
+        assertEquals(4, statistics.lineCount());
+        assertEquals(3 + 1, statistics.defaultActionCount());
+        assertEquals(2, statistics.moreCount());
+        List<LineProcessing.RuleStatistics> rules = statistics.ruleStatistics();
+        assertEquals(3, rules.size());
+        assertEquals(1, rules.get(0).matchCount());
+        assertEquals(1, rules.get(1).ruleIndex());
+        assertEquals(2, rules.get(1).matchCount());
+        assertEquals(1, rules.get(2).matchCount());
+    }
+
+    @Test
+    void concurrentCombinedScript() {
+        List<ScriptBuilder<LinesState>> builders = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String prefix = "s" + i + ":";
+            ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+            builder.onDefault((c, s) -> s.sum += c.lineNumber());
+            builder.onEndOfText((c, s) -> {
+                synchronized (results) {
+                    results.add(prefix + s.sum);
+                }
+            });
+            builders.add(builder);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("line ").append(i).append("\n");
+        }
+
+        LineProcessing.Script script = LineProcessing.newConcurrentCombinedScript(
+                builders.get(0).build(), builders.get(1).build(), builders.get(2).build());
+        script.process(text.toString());
+
+        results.sort(null);
+        assertEquals("[s0:12502500, s1:12502500, s2:12502500]", results.toString());
+    }
+
+    @Test
+    void concurrentCombinedScriptRethrowsException() {
+        ScriptBuilder<LinesState> builder1 = LineProcessing.newScriptBuilder(LinesState::new);
+        builder1.onMatch("fail", (c, s) -> {
+            throw new IllegalStateException("failed in line " + c.lineNumber());
+        });
+        ScriptBuilder<LinesState> builder2 = LineProcessing.newScriptBuilder(LinesState::new);
+
+        LineProcessing.Script script = LineProcessing.newConcurrentCombinedScript(
+                builder1.build(), builder2.build());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> script.process("a\nfail\nb"));
+        assertEquals("failed in line 2", e.getMessage());
+    }
+
+    @Test
+    void pipelineInput() {
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        builder.pipelineInput();
+        builder.onMatch("\\d+", (c, s) -> s.sum += Integer.parseInt(c.line()));
+        StringBuilder out = new StringBuilder();
+        builder.onEndOfText((c, s) -> out.append(c.lineNumber()).append(":").append(s.sum));
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) {
+            text.append(i).append("\n");
+        }
+
+        builder.build().process(newInputStream(text.toString()));
+
+        assertEquals("5000:12502500", out.toString());
+    }
+
+    @Test
+    void processFiles() {
+        File dir = tempDirectoryForRun();
+        writeText(new File(dir, "a.txt"), "x\nfoo\n");
+        writeText(new File(mkdirs(dir, "sub"), "b.txt"), "foo\nbar foo\n");
+        writeText(new File(dir, "c.log"), "foo\n");
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        builder.onMatch(".*foo.*", (c, s) -> s.lines.add(
+                dir.toPath().relativize(c.file()) + ":" + c.lineNumber()));
+        List<String> results = new ArrayList<>();
+        builder.onEndOfText((c, s) -> {
+            synchronized (results) {
+                results.add(String.join(",", s.lines));
+            }
+        });
+
+        builder.build().processFiles(
+                dir.toPath(), p -> p.toString().endsWith(".txt"));
+
+        results.sort(null);
+        assertEquals("[a.txt:2, sub" + File.separator + "b.txt:1,sub" +
+                File.separator + "b.txt:2]", results.toString());
+    }
+
+    @Test
+    void processFilesWithMergedStates() {
+        File dir = tempDirectoryForRun();
+        for (int i = 0; i < 20; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j <= i * 100; j++) {
+                text.append(j).append("\n");
+            }
+            writeText(new File(dir, String.format("f%02d.txt", i)), text.toString());
+        }
+        ScriptBuilder<LinesState> builder = LineProcessing.newScriptBuilder(LinesState::new);
+        builder.onDefault((c, s) -> s.sum += c.lineNumber());
+        builder.onMergeStates((a, b) -> {
+            a.sum += b.sum;
+            return a;
+        });
+        List<String> results = new ArrayList<>();
+        builder.onEndOfText((c, s) -> results.add(c.file().getFileName() + ":" + s.sum));
+
+        builder.build().processFiles(dir.toPath(), p -> true, StandardCharsets.UTF_8, 4);
+
+        // sum over all files i: (i*100+1)*(i*100+2)/2
+        assertEquals("[f19.txt:12378520]", results.toString());
+
+        builder.requireSequentialProcessing();
+        results.clear();
+        builder.build().processFiles(dir.toPath(), p -> true, StandardCharsets.UTF_8, 4);
+
+        assertEquals("[f19.txt:12378520]", results.toString());
+    }
+
+    @Test
+    void fileInContext() {
+        ScriptBuilder<MyState> builder = LineProcessing.newScriptBuilder(MyState::new);
+        List<String> out = new ArrayList<>();
+        builder.onDefault((c, s) -> out.add(String.valueOf(c.file())));
+        File file = writeText(tempFileForRun(), "a");
+        LineProcessing.Script script = builder.build();
+
+        script.process(file.toPath());
+        script.process("b");
+
+        assertEquals("[" + file.toPath() + ", null]", out.toString());
+    }
+
+    static class LinesState {
+        final List<String> lines = new ArrayList<>();
+        int sum = 0;
+    }
+
     static class MyState {
         int charCount = 0;
     }
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.abego.commons.io.FileUtil.tempFileForRun;
+import static org.abego.commons.io.FileUtil.writeText;
+import static org.abego.commons.lineprocessing.MappedLineSource.newMappedLineSource;
+import static org.abego.commons.lineprocessing.ReaderLineSource.newReaderLineSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MappedLineSourceTest {
+
+    private static List<String> lines(LineSource source) throws IOException {
+        List<String> result = new ArrayList<>();
+        while (source.nextLine()) {
+            CharSequence line = source.line();
+            // access the line both as a CharSequence and as a String
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < line.length(); i++) {
+                sb.append(line.charAt(i));
+            }
+            assertEquals(sb.toString(), line.toString());
+            result.add(line.toString());
+        }
+        return result;
+    }
+
+    private static void assertSameLinesAsReader(
+            String text, Charset charset, int windowSize) throws IOException {
+        File file = writeText(tempFileForRun(), text, charset);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             Reader reader = new InputStreamReader(new FileInputStream(file), charset)) {
+            List<String> expected = lines(newReaderLineSource(reader));
+
+            List<String> actual = lines(newMappedLineSource(
+                    channel, 0, channel.size(), charset, windowSize));
+
+            assertEquals(expected, actual, () -> "window size " + windowSize);
+        }
+    }
+
+    @Test
+    void sameLinesAsReader() throws IOException {
+        String[] texts = {
+                "", "\n", "a", "a\n", "a\nb\r\nc\rd", "a\n\nb\n", "a\r\r\n",
+                "\u00e4\u00f6\u00fc\nabc\r\n\u20ac uro\r\u00df",
+                "x\r\ny\r\nzzzzzzzzzzzzzzzzzzzzzz\r\n"};
+        for (String text : texts) {
+            for (int windowSize : new int[]{1, 2, 3, 5, 8, MappedLineSource.DEFAULT_WINDOW_SIZE}) {
+                assertSameLinesAsReader(text, StandardCharsets.UTF_8, windowSize);
+                assertSameLinesAsReader(text, StandardCharsets.ISO_8859_1, windowSize);
+            }
+        }
+    }
+
+    @Test
+    void rangeOfFile() throws IOException {
+        File file = writeText(tempFileForRun(), "a\nbb\nccc\n");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            LineSource source = newMappedLineSource(channel, 2, 5, StandardCharsets.UTF_8);
+
+            assertEquals("bb", String.join("|", lines(source)));
+            assertFalse(source.nextLine());
+            assertEquals("bb", source.line().toString());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.abego.commons.lineprocessing.PatternPrefilter.newPatternPrefilter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatternPrefilterTest {
+
+    private static PatternPrefilter prefilter(String regex) {
+        return newPatternPrefilter(Pattern.compile(regex));
+    }
+
+    @Test
+    void prefix() {
+        assertEquals("foo", prefilter("foo").prefix());
+        assertEquals("foo", prefilter("^foo").prefix());
+        assertEquals("ERROR: ", prefilter("ERROR: (.*)").prefix());
+        assertEquals("a.b", prefilter("a\\.b\\d+").prefix());
+        assertEquals("fo", prefilter("foo?bar").prefix());
+        assertEquals("fo", prefilter("foo{2}").prefix());
+        assertEquals("", prefilter("(\\w)\\w\\w\\w").prefix());
+        assertEquals("", prefilter(".*foo").prefix());
+        assertEquals("", prefilter("[abc]foo").prefix());
+    }
+
+    @Test
+    void noPrefilterForComplexRegex() {
+        assertEquals("", prefilter("foo|bar").prefix());
+        assertEquals("", prefilter("(?i)foo").prefix());
+        assertEquals("", prefilter("\\Qfoo\\E").prefix());
+        assertEquals("", prefilter("\\x41bc").prefix());
+        assertEquals("", newPatternPrefilter(
+                Pattern.compile("foo", Pattern.CASE_INSENSITIVE)).prefix());
+        assertTrue(prefilter("foo|bar").mayMatch("bar"));
+        assertTrue(prefilter("(?i)foo").mayMatch("FOO"));
+    }
+
+    @Test
+    void mayMatch() {
+        PatternPrefilter p = prefilter("GET (\\S+) HTTP/1\\.1 (\\d+)");
+
+        assertTrue(p.mayMatch("GET /index.html HTTP/1.1 200"));
+        assertFalse(p.mayMatch("POST /index.html HTTP/1.1 200"));
+        assertFalse(p.mayMatch("GET /index.html HTTP/2 200"));
+        assertTrue(prefilter(".*").mayMatch(""));
+    }
+
+    @Test
+    void mayMatchIsNeverFalseForMatchingLines() {
+        String[] regexes = {
+                "foo", "fo+", "fo*bar", "a(b)?c", "x[yz]+\\.txt",
+                "(\\w+)-(\\d+)", "ab{1,3}c", "a.c", "\\d+ items?"};
+        String[] lines = {
+                "foo", "fooo", "fbar", "foobar", "ac", "abc", "xy.txt",
+                "xyz.txt", "abc-12", "abbbc", "a-c", "1 item", "12 items"};
+
+        for (String regex : regexes) {
+            Pattern pattern = Pattern.compile(regex);
+            PatternPrefilter p = newPatternPrefilter(pattern);
+            for (String line : lines) {
+                if (pattern.matcher(line).matches()) {
+                    assertTrue(p.mayMatch(line), regex + " / " + line);
+                }
+            }
+        }
+    }
+}
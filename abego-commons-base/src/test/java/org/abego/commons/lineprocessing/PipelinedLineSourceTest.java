@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.abego.commons.lineprocessing.PipelinedLineSource.newPipelinedLineSource;
+import static org.abego.commons.lineprocessing.ReaderLineSource.newReaderLineSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelinedLineSourceTest {
+
+    private static List<String> lines(Reader reader) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (PipelinedLineSource source =
+                     newPipelinedLineSource(newReaderLineSource(reader))) {
+            while (source.nextLine()) {
+                result.add(source.line().toString());
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void smoketest() throws IOException {
+        assertEquals("[a, b, , c]", lines(new StringReader("a\nb\r\n\rc")).toString());
+        assertEquals(0, lines(new StringReader("")).size());
+    }
+
+    @Test
+    void manyLines() throws IOException {
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            text.append("line ").append(i).append("\n");
+            expected.add("line " + i);
+        }
+
+        assertEquals(expected, lines(new StringReader(text.toString())));
+    }
+
+    @Test
+    void lastLineAvailableAtEndOfInput() throws IOException {
+        try (PipelinedLineSource source = newPipelinedLineSource(
+                newReaderLineSource(new StringReader("a\nb")))) {
+            assertTrue(source.nextLine());
+            assertTrue(source.nextLine());
+            assertFalse(source.nextLine());
+            assertEquals("b", source.line().toString());
+        }
+    }
+
+    @Test
+    void readFailureIsRethrown() {
+        Reader failingReader = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("read failed");
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> lines(failingReader));
+        assertEquals("read failed", e.getMessage());
+    }
+
+    @Test
+    void closeBeforeEndOfInput() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            text.append(i).append("\n");
+        }
+        PipelinedLineSource source = newPipelinedLineSource(
+                newReaderLineSource(new StringReader(text.toString())));
+        assertTrue(source.nextLine());
+        assertEquals("0", source.line().toString());
+
+        // must not block, though the reader thread has more lines to hand over
+        source.close();
+    }
+}
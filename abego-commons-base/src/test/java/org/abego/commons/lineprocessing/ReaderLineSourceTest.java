@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Udo Borkowski, (ub@abego.org)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.abego.commons.lineprocessing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.abego.commons.lineprocessing.ReaderLineSource.newReaderLineSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReaderLineSourceTest {
+
+    private static List<String> lines(Reader reader) throws IOException {
+        LineSource source = newReaderLineSource(reader);
+        List<String> result = new ArrayList<>();
+        while (source.nextLine()) {
+            result.add(source.line().toString());
+        }
+        return result;
+    }
+
+    private static String joined(List<String> lines) {
+        return String.join("|", lines);
+    }
+
+    @Test
+    void lineSeparators() throws IOException {
+        assertEquals("a|b|c|d", joined(lines(new StringReader("a\nb\r\nc\rd"))));
+        assertEquals("a||b", joined(lines(new StringReader("a\n\nb\n"))));
+        assertEquals("a|", joined(lines(new StringReader("a\r\r\n"))));
+        assertEquals("", joined(lines(new StringReader(""))));
+        assertEquals(1, lines(new StringReader("\n")).size());
+    }
+
+    @Test
+    void readOneCharAtATime() throws IOException {
+        assertEquals("ab|cd|e|f", joined(lines(new OneCharReader("ab\r\ncd\re\nf"))));
+    }
+
+    @Test
+    void longLines() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+        String text = "x\n" + longLine + "\r\ny";
+
+        List<String> lines = lines(new StringReader(text));
+
+        assertEquals(3, lines.size());
+        assertEquals("x", lines.get(0));
+        assertEquals(longLine.toString(), lines.get(1));
+        assertEquals("y", lines.get(2));
+    }
+
+    @Test
+    void lastLineAvailableAtEndOfInput() throws IOException {
+        LineSource source = newReaderLineSource(new OneCharReader("ab\r\n"));
+
+        source.nextLine();
+        source.nextLine();
+
+        assertEquals("ab", source.line().toString());
+        assertEquals("b", source.line().subSequence(1, 2).toString());
+    }
+
+    private static final class OneCharReader extends Reader {
+        private final String text;
+        private int pos = 0;
+
+        private OneCharReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos >= text.length()) {
+                return -1;
+            }
+            cbuf[off] = text.charAt(pos++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+}
@@ -28,6 +28,9 @@ import org.abego.commons.io.PrintStreamToBuffer;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -69,4 +72,18 @@ class ProgressesTest {
 
         assertNotNull(listener);
     }
+
+    @Test
+    void createByteCountUpdater() {
+        ProgressWithRange progress = Progresses.createProgressWithRange(
+                "Topic", 100, e -> {});
+        LongConsumer updater = Progresses.createByteCountUpdater(progress, 4000);
+
+        updater.accept(1000);
+        assertEquals(25, progress.getValue());
+        assertEquals("1000 of 4000 bytes", progress.getText());
+
+        updater.accept(4000);
+        assertEquals(100, progress.getValue());
+    }
 }
@@ -336,5 +336,30 @@ class SeqUtilTest {
         assertEquals("1,3,a,b,c", result.joined(","));
     }
 
+    @Test
+    void batches() {
+        Seq<Integer> seq = newSeq(1, 2, 3, 4, 5);
+
+        Seq<Seq<Integer>> batches = SeqUtil.batches(seq, 2);
+
+        assertEquals(3, batches.size());
+        assertEquals("1,2", batches.item(0).joined(","));
+        assertEquals("3,4", batches.item(1).joined(","));
+        assertEquals("5", batches.item(2).joined(","));
+        assertEquals(4, batches.item(1).item(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> batches.item(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> batches.item(0).item(2));
+    }
+
+    @Test
+    void batchesEmpty() {
+        assertTrue(SeqUtil.batches(emptySeq(), 3).isEmpty());
+    }
+
+    @Test
+    void batchesInvalidBatchSize() {
+        Seq<Integer> seq = newSeq(1, 2, 3);
 
+        assertThrows(IllegalArgumentException.class, () -> SeqUtil.batches(seq, 0));
+    }
 }
@@ -27,8 +27,16 @@ package org.abego.commons.util;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.util.Calendar.MILLISECOND;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -55,4 +63,88 @@ class DateUtilTest {
         assertEquals("13:03:42", DateUtil.isoTime(date));
         assertEquals("13:03:42.123", DateUtil.isoTimeMillis(date));
     }
+
+    @Test
+    void appendable() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2023, Calendar.OCTOBER, 14, 9, 3, 42);
+        cal.set(MILLISECOND, 7);
+        Date date = cal.getTime();
+
+        StringBuilder sb = new StringBuilder();
+        DateUtil.isoDateTimeMillis(sb, date);
+        sb.append('|');
+        DateUtil.isoDateTime(sb, date);
+        sb.append('|');
+        DateUtil.isoDate(sb, date);
+        sb.append('|');
+        DateUtil.isoTime(sb, date);
+        sb.append('|');
+        DateUtil.isoTimeMillis(sb, date);
+
+        assertEquals("2023-10-14T9:03:42.007|2023-10-14T9:03:42|2023-10-14|9:03:42|9:03:42.007",
+                sb.toString());
+    }
+
+    @Test
+    void beforeEpoch() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(1969, Calendar.DECEMBER, 31, 23, 59, 59);
+        cal.set(MILLISECOND, 999);
+        Date date = cal.getTime();
+
+        assertEquals("1969-12-31T23:59:59.999", DateUtil.isoDateTimeMillis(date));
+    }
+
+    @Test
+    void sameTextsAsSimpleDateFormat() {
+        SimpleDateFormat dateTimeMillisFormat =
+                new SimpleDateFormat("yyyy-MM-dd'T'H:mm:ss.SSS", Locale.ROOT);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.ROOT);
+        SimpleDateFormat timeFormat = new SimpleDateFormat("H:mm:ss", Locale.ROOT);
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        int[][] yearMonthDays = {
+                {10000, Calendar.JANUARY, 3}, // 5 digit year
+                {1582, Calendar.OCTOBER, 15}, // first day of Gregorian calendar
+                {1582, Calendar.OCTOBER, 4}, // last day of Julian calendar
+                {1000, Calendar.FEBRUARY, 29}, // leap year only in Julian calendar
+                {1, Calendar.JANUARY, 1},
+        };
+        for (int[] ymd : yearMonthDays) {
+            cal.set(ymd[0], ymd[1], ymd[2], 17, 4, 5);
+            cal.set(MILLISECOND, 60);
+            Date date = cal.getTime();
+
+            assertEquals(dateTimeMillisFormat.format(date), DateUtil.isoDateTimeMillis(date));
+            assertEquals(dateFormat.format(date), DateUtil.isoDate(date));
+            assertEquals(timeFormat.format(date), DateUtil.isoTime(date));
+        }
+    }
+
+    @Test
+    void concurrentUse() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int threadIndex = t;
+                futures.add(executor.submit(() -> {
+                    SimpleDateFormat expectedFormat = new SimpleDateFormat(
+                            "yyyy-MM-dd'T'H:mm:ss.SSS", Locale.ROOT);
+                    for (int i = 0; i < 10000; i++) {
+                        // dates in different seconds, to replace the cached texts
+                        Date date = new Date(1697281422123L + (i * 4 + threadIndex) * 777L);
+                        assertEquals(expectedFormat.format(date),
+                                DateUtil.isoDateTimeMillis(date));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
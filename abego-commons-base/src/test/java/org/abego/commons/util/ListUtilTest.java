@@ -27,18 +27,24 @@ package org.abego.commons.util;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.abego.commons.lang.IterableUtil.textOf;
+import static org.abego.commons.util.ListUtil.batches;
+import static org.abego.commons.util.ListUtil.forEachBatchInParallel;
 import static org.abego.commons.util.ListUtil.list;
 import static org.abego.commons.util.ListUtil.map;
 import static org.abego.commons.util.ListUtil.nthItemAsStringOrNull;
 import static org.abego.commons.util.ListUtil.sortedList;
+import static org.abego.commons.util.ListUtil.splitInBatches;
 import static org.abego.commons.util.ListUtil.toList;
 import static org.abego.commons.util.ListUtil.toListWithMapping;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ListUtilTest {
 
@@ -129,4 +135,71 @@ class ListUtilTest {
         assertNull(nthItemAsStringOrNull(c, 3));
         assertNull(nthItemAsStringOrNull(c, 4));
     }
+
+    @Test
+    void splitInBatches_ok() {
+        List<Integer> items = toList(1, 2, 3, 4, 5, 6, 7);
+
+        List<List<Integer>> batches = new ArrayList<>(splitInBatches(items, 3));
+
+        assertEquals(3, batches.size());
+        assertEquals("1,2,3", textOf(batches.get(0), ","));
+        assertEquals("4,5,6", textOf(batches.get(1), ","));
+        assertEquals("7", textOf(batches.get(2), ","));
+    }
+
+    @Test
+    void batches_ok() {
+        List<Integer> items = toList(1, 2, 3, 4, 5, 6);
+
+        List<List<Integer>> batches = batches(items, 2);
+
+        assertEquals(3, batches.size());
+        assertEquals("1,2", textOf(batches.get(0), ","));
+        assertEquals("3,4", textOf(batches.get(1), ","));
+        assertEquals("5,6", textOf(batches.get(2), ","));
+        assertThrows(IndexOutOfBoundsException.class, () -> batches.get(3));
+    }
+
+    @Test
+    void batches_areViews() {
+        List<Integer> items = toList(1, 2, 3);
+
+        List<List<Integer>> batches = batches(items, 2);
+        items.set(2, 42);
+
+        assertEquals("42", textOf(batches.get(1), ","));
+    }
+
+    @Test
+    void batches_empty() {
+        assertTrue(batches(list(), 3).isEmpty());
+    }
+
+    @Test
+    void batches_invalidBatchSize() {
+        List<Integer> items = toList(1, 2, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> batches(items, 0));
+    }
+
+    @Test
+    void forEachBatchInParallel_ok() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            items.add(i);
+        }
+        AtomicInteger sum = new AtomicInteger();
+        AtomicInteger batchCount = new AtomicInteger();
+
+        forEachBatchInParallel(items, 7, 3, batch -> {
+            batchCount.incrementAndGet();
+            for (int i : batch) {
+                sum.addAndGet(i);
+            }
+        });
+
+        assertEquals(15, batchCount.get());
+        assertEquals(5050, sum.get());
+    }
 }
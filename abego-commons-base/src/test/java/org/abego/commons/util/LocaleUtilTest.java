@@ -28,6 +28,8 @@ import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 
 import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.abego.commons.util.LocaleUtil.DEFAULT_LOCALE;
 import static org.abego.commons.util.LocaleUtil.camelCased;
@@ -71,4 +73,63 @@ class LocaleUtilTest {
         assertEquals(Locale.GERMAN, localeOrDefault(Locale.GERMAN));
     }
 
-}
\ No newline at end of file
+    @Test
+    void casedMethods_sameResultsAsRegexImplementation() {
+        String[] strings = {
+                "", "a", "A", "-", "abcDef", "AbcDEF", "param0Disabled",
+                "abc \ndef -_ GhI", "  leading and trailing  ", "-x-",
+                "Über den Menschen", "ÄÖÜäöüß", "straße", "ΟΔΟΣ ΟΔΟΣ",
+                "ǅemal", "Ix\u0307I\u0300",
+                "ﬁle name", "İstanbul icIN", "x١٢3Y"};
+        Locale[] locales = {
+                Locale.US, Locale.GERMAN, new Locale("tr"),
+                new Locale("lt"), new Locale("el")};
+        for (Locale locale : locales) {
+            for (String s : strings) {
+                String message = s + " in " + locale;
+                assertEquals(regexCamelCased(s, locale), camelCased(s, locale), message);
+                assertEquals(regexCasedString(s, "-").toLowerCase(locale),
+                        dashCased(s, locale), message);
+                assertEquals(regexCasedString(s, "_").toLowerCase(locale),
+                        snakeCased(s, locale), message);
+                assertEquals(regexCasedString(s, "_").toUpperCase(locale),
+                        snakeUpperCased(s, locale), message);
+            }
+        }
+    }
+
+    @Test
+    void casedMethods_supplementaryCharacters() {
+        // "\uD801\uDC00" is an uppercase, "\uD801\uDC28" its lowercase letter
+        // (Deseret). Characters outside the BMP are handled like the others.
+        assertEquals("a-\uD801\uDC28b", dashCased("a\uD801\uDC00b", Locale.US));
+        assertEquals("x\uD801\uDC28_x", snakeCased("x\uD801\uDC28X", Locale.US));
+        assertEquals("x\uD801\uDC28X", camelCased("x\uD801\uDC28X", Locale.US));
+    }
+
+    // the former, regex based implementations of the "cased" methods
+
+    private static final Pattern LOWER_UPPER_CASE_BOUNDARY_OR_NON_DIGIT_OR_LETTER_SEQUENCE =
+            Pattern.compile("(?<=[\\p{javaLowerCase}0-9])(?=[\\p{javaUpperCase}])|([^0-9\\p{javaLowerCase}\\p{javaUpperCase}]+)");
+    private static final Pattern DIGIT_OR_LETTER_SEQUENCE =
+            Pattern.compile("[0-9\\p{javaLowerCase}\\p{javaUpperCase}]+");
+
+    private static String regexCamelCased(String s, Locale locale) {
+        StringBuilder result = new StringBuilder();
+        Matcher m = DIGIT_OR_LETTER_SEQUENCE.matcher(s);
+        while (m.find()) {
+            String word = m.group();
+            String firstChar = word.substring(0, 1);
+            result.append(result.length() > 0
+                    ? firstChar.toUpperCase(locale)
+                    : firstChar.toLowerCase(locale));
+            result.append(word.substring(1));
+        }
+        return result.toString();
+    }
+
+    private static String regexCasedString(String string, String separator) {
+        return LOWER_UPPER_CASE_BOUNDARY_OR_NON_DIGIT_OR_LETTER_SEQUENCE.
+                matcher(string).replaceAll(separator);
+    }
+}
@@ -24,9 +24,18 @@
 
 package org.abego.commons.util;
 
+import org.abego.commons.io.FileUtil;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -65,4 +74,96 @@ class PropertiesGroupTest {
                 "`abego` is the shared name and must not be used as a groupName.",
                 e.getMessage());
     }
+
+    @Test
+    void reloadingPropertiesGroup(@TempDir File tempDir) throws InterruptedException {
+        File workDir = FileUtil.mkdirs(tempDir, "work");
+        File homeDir = FileUtil.mkdirs(tempDir, "home");
+        File configDir = FileUtil.mkdirs(homeDir, "config");
+        File homeFile = new File(homeDir, "abego.commons.testing.properties");
+        File workFile = new File(workDir, "abego.commons.testing.properties");
+        FileUtil.writeText(homeFile, "foo=home\nbar=home\n");
+
+        try (PropertiesGroup pg = PropertiesGroup.newReloadingPropertiesGroup(
+                "abego.commons.testing", "testing.abego", "config", workDir, homeDir)) {
+            assertEquals("home", pg.getProperty("foo"));
+            assertEquals("home", pg.getProperty("bar"));
+            Properties snapshot = pg.getProperties();
+
+            // a new file in the working directory overrules the home directory
+            FileUtil.writeText(workFile, "foo=work\n");
+            awaitProperty(pg, "foo", "work");
+            assertEquals("home", pg.getProperty("bar"));
+            assertEquals("home", snapshot.getProperty("foo"));
+
+            // changes in the config directory are picked up, too
+            FileUtil.writeText(new File(configDir, "abego.commons.testing.properties"),
+                    "baz=config\n");
+            awaitProperty(pg, "baz", "config");
+
+            FileUtil.deleteFile(workFile);
+            awaitProperty(pg, "foo", "home");
+        }
+    }
+
+    @Test
+    void reloadingPropertiesGroup_readFailureKeepsPreviousProperties(@TempDir File tempDir)
+            throws InterruptedException {
+        File file = new File(tempDir, "test.properties");
+        FileUtil.writeText(file, "foo=1\n");
+        AtomicBoolean failReading = new AtomicBoolean();
+        AtomicInteger failureCount = new AtomicInteger();
+        PropertiesGroupWatcher.PropertiesLoader loader = (properties, f) -> {
+            try (Reader reader = Files.newBufferedReader(
+                    f.toPath(), StandardCharsets.ISO_8859_1)) {
+                properties.load(reader);
+            }
+            if (failReading.get()) {
+                // fail after reading (some) values
+                failureCount.incrementAndGet();
+                throw new IOException("read failed");
+            }
+        };
+
+        try (PropertiesGroupWatcher watcher = PropertiesGroupWatcher
+                .newPropertiesGroupWatcher(new File[]{file}, loader)) {
+            assertEquals("1", watcher.getProperties().getProperty("foo"));
+
+            failReading.set(true);
+            FileUtil.writeText(file, "foo=2\nbar=2\n");
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (failureCount.get() == 0 && System.currentTimeMillis() < deadline) {
+                //noinspection BusyWait
+                Thread.sleep(20);
+            }
+            // give the watcher a chance to (wrongly) publish the values
+            Thread.sleep(100);
+
+            assertEquals("1", watcher.getProperties().getProperty("foo"));
+            assertNull(watcher.getProperties().getProperty("bar"));
+
+            failReading.set(false);
+            FileUtil.writeText(file, "foo=3\n");
+            deadline = System.currentTimeMillis() + 30_000;
+            while (!"3".equals(watcher.getProperties().getProperty("foo")) &&
+                    System.currentTimeMillis() < deadline) {
+                //noinspection BusyWait
+                Thread.sleep(20);
+            }
+            assertEquals("3", watcher.getProperties().getProperty("foo"));
+        }
+    }
+
+    private static void awaitProperty(
+            PropertiesGroup pg, String key, String expectedValue)
+            throws InterruptedException {
+        // some WatchService implementations poll, so give them some time
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!expectedValue.equals(pg.getProperty(key)) &&
+                System.currentTimeMillis() < deadline) {
+            //noinspection BusyWait
+            Thread.sleep(20);
+        }
+        assertEquals(expectedValue, pg.getProperty(key));
+    }
 }
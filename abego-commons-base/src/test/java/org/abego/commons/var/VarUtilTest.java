@@ -25,11 +25,13 @@
 package org.abego.commons.var;
 
 import org.abego.commons.io.FileUtil;
+import org.abego.commons.io.TextFileCache;
 import org.abego.commons.lang.exception.MustNotInstantiateException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 import static org.abego.commons.var.VarUtil.newVar;
 import static org.abego.commons.var.VarUtil.newVarNotEditable;
@@ -63,6 +65,28 @@ class VarUtilTest extends VarTest {
         assertEquals("bar", FileUtil.textOf(file));
     }
 
+    @Test
+    void newTextFileVar_withTextFileCache(@TempDir File tempDir) {
+        File file = new File(tempDir, "t.txt");
+        TextFileCache cache = FileUtil.newTextFileCache(100);
+
+        FileUtil.writeText(file, "foo");
+        // modified "long ago", so the text is not racy
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 10000));
+
+        Var<String> v = VarUtil.newTextFileVar(file, StandardCharsets.UTF_8, cache);
+
+        assertEquals("foo", v.get());
+        assertEquals("foo", v.get());
+        assertEquals(1, cache.getHitCount());
+
+        v.set("bar");
+
+        assertEquals("bar", v.get());
+        assertEquals("bar", FileUtil.textOf(file));
+        assertEquals(2, cache.getMissCount());
+    }
+
     @Test
     void newVarNullable() {
         VarNullable<String> v = VarUtil.newVarNullable();